@@ -0,0 +1,48 @@
+package net.example.openeffect;
+
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** ベンチマーク共通：疑似サーバーに OpenEffect を起動し、ランダムな位置と効果のプレイヤーを並べる */
+final class BenchSetup {
+
+    static final PotionEffectType[] TYPES = {
+            PotionEffectType.SPEED, PotionEffectType.SLOWNESS, PotionEffectType.HASTE, PotionEffectType.STRENGTH,
+            PotionEffectType.REGENERATION, PotionEffectType.RESISTANCE, PotionEffectType.FIRE_RESISTANCE,
+            PotionEffectType.NIGHT_VISION, PotionEffectType.INVISIBILITY, PotionEffectType.POISON,
+            PotionEffectType.ABSORPTION, PotionEffectType.LUCK,
+    };
+
+    private BenchSetup() {}
+
+    /**
+     * @param players   人数
+     * @param adminRatio 管理者（頭上表示を見る viewer）の割合
+     * @param area      プレイヤーを置く正方形の一辺（ブロック）
+     */
+    static OpenEffectPlugin populate(FakeServer server, int players, double adminRatio, double area, Map<String, Object> overrides) {
+        Map<String, Object> cfg = new HashMap<>();
+        cfg.put("updateBudgetMicros", 0); // 初期描画を1tickで終わらせる
+        cfg.putAll(overrides);
+        OpenEffectPlugin plugin = server.enable(cfg);
+
+        Random rnd = new Random(42);
+        for (int i = 0; i < players; i++) {
+            FakePlayer fp = server.join("p" + i, server.at(rnd.nextDouble() * area, rnd.nextDouble() * area), rnd.nextDouble() < adminRatio);
+            int n = rnd.nextInt(5);
+            for (int k = 0; k < n; k++) fp.addEffect(randomEffect(rnd));
+        }
+        server.tick();
+        return plugin;
+    }
+
+    static PotionEffect randomEffect(Random rnd) {
+        PotionEffectType type = TYPES[rnd.nextInt(TYPES.length)];
+        int duration = rnd.nextInt(10) == 0 ? PotionEffect.INFINITE_DURATION : 20 * (5 + rnd.nextInt(600));
+        return new PotionEffect(type, duration, rnd.nextInt(3));
+    }
+}
@@ -0,0 +1,101 @@
+package net.example.openeffect;
+
+import org.bukkit.entity.Display.Billboard;
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffect;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描画まわりのホットパス（1回あたりの時間）。
+ * 対象プレイヤーを順に回すので、人数が多いほどキャッシュに乗らない状態に近づく。
+ * 本番の経路は render（内部バッファへの描画）と updateOne（描画・変化検知・setText・位置合わせ）。
+ * buildEffectLines は毎回リストを作る互換 API で、比較用の基準として残している。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int players;
+
+    private FakeServer server;
+    private OpenEffectPlugin plugin;
+    private DisplayManager displays;
+    private EffectRenderer renderer;
+    private Player[] targets;
+    private PotionEffect[] effects;
+    private String[] texts;
+    private OverheadDisplay display;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        server = FakeServer.start();
+        plugin = BenchSetup.populate(server, players, 0.1, 512, Map.of());
+        displays = plugin.displays();
+        renderer = displays.renderer();
+
+        List<Player> ps = new ArrayList<>();
+        List<PotionEffect> es = new ArrayList<>();
+        List<String> ts = new ArrayList<>();
+        for (FakePlayer fp : server.players()) {
+            ps.add(fp.player());
+            es.addAll(fp.player().getActivePotionEffects());
+            ts.add(String.join("\n", displays.buildEffectLines(fp.player())));
+        }
+        targets = ps.toArray(new Player[0]);
+        effects = es.isEmpty() ? new PotionEffect[]{BenchSetup.randomEffect(new java.util.Random(1))} : es.toArray(new PotionEffect[0]);
+        texts = ts.toArray(new String[0]);
+
+        // DisplayManager と同じ実装の表示を1つ用意して setText だけを測る
+        display = new EntityDisplayBackend(plugin, new BukkitTaskRunner(plugin), Billboard.VERTICAL, new TextSetter(), 0, 0)
+                .spawn(targets[0], targets[0].getLocation());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.disable(plugin);
+    }
+
+    private int next(int n) {
+        int i = cursor++;
+        if (cursor >= n) cursor = 0;
+        return i % n;
+    }
+
+    @Benchmark
+    public CharSequence render() {
+        Player target = targets[next(targets.length)];
+        return renderer.render(target, target.getActivePotionEffects(), "\n");
+    }
+
+    @Benchmark
+    public void updateOne() {
+        displays.updateOne(targets[next(targets.length)]);
+    }
+
+    /** 基準（本番では使わない互換 API） */
+    @Benchmark
+    public List<String> buildEffectLines() {
+        return displays.buildEffectLines(targets[next(targets.length)]);
+    }
+
+    @Benchmark
+    public String effectName() {
+        return displays.effectName(effects[next(effects.length)]);
+    }
+
+    @Benchmark
+    public void setTextCompat() {
+        displays.setTextCompat(display, texts[next(texts.length)]);
+    }
+}
@@ -0,0 +1,72 @@
+package net.example.openeffect;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * applyVisibility の fan-out（viewer 1人分の可視性の見直し）。
+ * - steady: 状態が変わらない再適用（近傍の列挙と BitSet 比較だけ）
+ * - crossCell: viewer が遠く離れた2地点を往復し、毎回 近傍の全 hide/show が発生する
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisibilityBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int players;
+
+    @Param({"0.1", "1.0"})
+    public double adminRatio;
+
+    private static final double AREA = 256;
+
+    private FakeServer server;
+    private OpenEffectPlugin plugin;
+    private DisplayManager displays;
+    private Player[] viewers;
+    private Location home, away;
+    private boolean atHome = true;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        server = FakeServer.start();
+        plugin = BenchSetup.populate(server, players, adminRatio, AREA, Map.of());
+        displays = plugin.displays();
+
+        List<Player> vs = new ArrayList<>();
+        for (FakePlayer fp : server.players()) if (fp.admin) vs.add(fp.player());
+        if (vs.isEmpty()) vs.add(server.players().iterator().next().player());
+        viewers = vs.toArray(new Player[0]);
+        home = server.at(AREA / 2, AREA / 2);
+        away = server.at(AREA * 64, AREA * 64); // 誰もいない場所
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.disable(plugin);
+    }
+
+    @Benchmark
+    public void steady() {
+        int i = cursor++;
+        if (cursor >= viewers.length) cursor = 0;
+        displays.applyVisibility(viewers[i]);
+    }
+
+    @Benchmark
+    public void crossCell() {
+        atHome = !atHome;
+        displays.onMoved(viewers[0], atHome ? home : away);
+    }
+}
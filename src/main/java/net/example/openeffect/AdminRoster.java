@@ -0,0 +1,175 @@
+package net.example.openeffect;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 管理GUI（オンライン一覧）の名簿と、プレイヤーの頭アイテムのキャッシュ。
+ * - 名簿は名前順の配列を join/quit で差分更新する（ページを開くたびに全員をソートしない）
+ * - 頭アイテムは UUID ごとに1回だけ作る（setOwningPlayer と PDC の書き込みは初回のみ）。
+ *   表示時は効果数が変わった時だけ lore を差し替える
+ * - Inventory#setItem は中身をコピーするので、キャッシュのアイテムはそのまま置いてよい
+ * - 他サーバー（ClusterView）のプレイヤーの頭も同じようにキャッシュする（スキンは引かない）
+ * Folia では join/quit と GUI が別スレッドから来るため、名簿は書き込み時コピー、
+ * 頭は (アイテム, 効果数) の不変の組を丸ごと差し替えて共有する（公開後は書き換えない）。
+ */
+public class AdminRoster {
+
+    private static final Comparator<Player> ORDER =
+            Comparator.comparing(Player::getName, Comparator.nullsLast(String::compareToIgnoreCase))
+                    .thenComparing(Player::getUniqueId);
+
+    /** 頭アイテムと、その lore に書いた効果数（node は他サーバーの頭のみ） */
+    private record Head(ItemStack item, int effects, String node) {
+        Head(ItemStack item, int effects) {
+            this(item, effects, null);
+        }
+    }
+
+    private final NamespacedKey targetKey;
+    private volatile Player[] sorted = new Player[0];
+    private final Map<UUID, Head> heads = new ConcurrentHashMap<>();
+    private final Map<UUID, Head> remoteHeads = new ConcurrentHashMap<>();
+
+    public AdminRoster(NamespacedKey targetKey) {
+        this.targetKey = targetKey;
+    }
+
+    // ===== 名簿 =====
+    public synchronized void add(Player p) {
+        Player[] cur = sorted;
+        int idx = Arrays.binarySearch(cur, p, ORDER);
+        if (idx >= 0) { // 同じプレイヤーの再登録は差し替えだけ
+            Player[] next = cur.clone();
+            next[idx] = p;
+            sorted = next;
+            heads.remove(p.getUniqueId());
+            return;
+        }
+        int at = -idx - 1;
+        Player[] next = new Player[cur.length + 1];
+        System.arraycopy(cur, 0, next, 0, at);
+        next[at] = p;
+        System.arraycopy(cur, at, next, at + 1, cur.length - at);
+        sorted = next;
+        remoteHeads.remove(p.getUniqueId()); // 他サーバーから移ってきた
+    }
+
+    public synchronized void remove(UUID id) {
+        heads.remove(id);
+        Player[] cur = sorted;
+        for (int i = 0; i < cur.length; i++) {
+            if (!cur[i].getUniqueId().equals(id)) continue;
+            Player[] next = new Player[cur.length - 1];
+            System.arraycopy(cur, 0, next, 0, i);
+            System.arraycopy(cur, i + 1, next, i, cur.length - i - 1);
+            sorted = next;
+            return;
+        }
+    }
+
+    public synchronized void clear() {
+        sorted = new Player[0];
+        heads.clear();
+        remoteHeads.clear();
+    }
+
+    /** 一覧に並ぶ人数（exclude は除外する viewer、null なら全員） */
+    public int size(UUID exclude) {
+        Player[] cur = sorted;
+        if (exclude == null) return cur.length;
+        for (Player p : cur) if (p.getUniqueId().equals(exclude)) return cur.length - 1;
+        return cur.length;
+    }
+
+    /** 名前順で start 番目から最大 count 人（頭アイテムは head() で取る） */
+    public List<Player> page(UUID exclude, int start, int count) {
+        Player[] cur = sorted;
+        List<Player> out = new ArrayList<>(Math.min(count, cur.length));
+        int skip = start;
+        for (Player p : cur) {
+            if (out.size() >= count) break;
+            if (exclude != null && p.getUniqueId().equals(exclude)) continue;
+            if (skip > 0) { skip--; continue; }
+            out.add(p);
+        }
+        return out;
+    }
+
+    // ===== 頭アイテム =====
+    public ItemStack head(Player target) {
+        int effCount = target.getActivePotionEffects().size();
+        Head h = heads.get(target.getUniqueId());
+        if (h == null) {
+            h = new Head(build(target, effCount), effCount);
+            Head prev = heads.putIfAbsent(target.getUniqueId(), h);
+            if (prev != null) h = prev;
+        }
+        if (h.effects() != effCount) {
+            // 効果数の lore だけを書き換えた複製を、新しい組として差し替える
+            ItemStack it = h.item().clone();
+            ItemMeta im = it.getItemMeta();
+            im.setLore(lore(effCount));
+            it.setItemMeta(im);
+            Head next = new Head(it, effCount);
+            heads.replace(target.getUniqueId(), h, next); // 退出で消えた後なら戻さない
+            h = next;
+        }
+        return h.item();
+    }
+
+    /** 他サーバーのプレイヤーの頭（効果数かサーバーが変わった時だけ作り直す） */
+    public ItemStack head(ClusterView.RemotePlayer target) {
+        int effCount = target.effects().size();
+        Head h = remoteHeads.get(target.id());
+        if (h == null || h.effects() != effCount || !h.node().equals(target.node())) {
+            ItemStack it = new ItemStack(Material.PLAYER_HEAD);
+            ItemMeta im = it.getItemMeta();
+            im.setDisplayName(ChatColor.AQUA + target.name());
+            List<String> lore = new ArrayList<>(lore(effCount));
+            lore.add(1, ChatColor.GRAY + "サーバー: " + ChatColor.WHITE + target.node());
+            im.setLore(lore);
+            im.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
+            it.setItemMeta(im);
+            h = new Head(it, effCount, target.node());
+            remoteHeads.put(target.id(), h);
+        }
+        return h.item();
+    }
+
+    /** 一覧から消えた他サーバーのプレイヤーの頭を捨てる */
+    public void retainRemote(Set<UUID> present) {
+        remoteHeads.keySet().retainAll(present);
+    }
+
+    private ItemStack build(Player target, int effCount) {
+        ItemStack it = new ItemStack(Material.PLAYER_HEAD);
+        SkullMeta sm = (SkullMeta) it.getItemMeta();
+        sm.setOwningPlayer(target);
+        sm.setDisplayName(ChatColor.AQUA + target.getName());
+        sm.setLore(lore(effCount));
+        sm.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
+
+        // ターゲットUUIDをPDCに埋める
+        sm.getPersistentDataContainer().set(targetKey, PersistentDataType.STRING, target.getUniqueId().toString());
+
+        it.setItemMeta(sm);
+        return it;
+    }
+
+    private static List<String> lore(int effCount) {
+        return List.of(
+                ChatColor.GRAY + "効果数: " + ChatColor.WHITE + effCount,
+                ChatColor.DARK_GRAY + "クリックで効果を表示");
+    }
+}
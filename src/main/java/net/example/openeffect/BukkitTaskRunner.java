@@ -0,0 +1,57 @@
+package net.example.openeffect;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/** 従来どおりメインスレッド1本で動かす */
+public class BukkitTaskRunner implements TaskRunner {
+
+    private final Plugin plugin;
+
+    public BukkitTaskRunner(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override public boolean isRegionized() { return false; }
+
+    @Override public long currentTick() { return Bukkit.getCurrentTick(); }
+
+    @Override
+    public void runGlobalTimer(Runnable task, long delay, long period) {
+        Bukkit.getScheduler().runTaskTimer(plugin, task, delay, period);
+    }
+
+    @Override
+    public void runGlobalLater(Runnable task, long delay) {
+        Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+    }
+
+    @Override
+    public void runFor(Entity entity, Runnable task) {
+        if (Bukkit.isPrimaryThread()) task.run();
+        else Bukkit.getScheduler().runTask(plugin, task);
+    }
+
+    @Override
+    public void runLaterFor(Entity entity, Runnable task, long delay) {
+        Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+    }
+
+    @Override
+    public void runTimerFor(Entity entity, Runnable task, long delay, long period) {
+        // Folia の EntityScheduler と同じく、entity が消えたら止める
+        Bukkit.getScheduler().runTaskTimer(plugin, t -> {
+            if (!entity.isValid()) {
+                t.cancel();
+                return;
+            }
+            task.run();
+        }, delay, period);
+    }
+
+    @Override
+    public void cancelAll() {
+        Bukkit.getScheduler().cancelTasks(plugin);
+    }
+}
@@ -0,0 +1,252 @@
+package net.example.openeffect;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * クラスタで送るフレームのバイナリ表現（整数は可変長、文字列は長さ + UTF-8）。
+ * <pre>
+ * frame : version(1) node(str) seq(varlong) kind(1) ...
+ *   DATA  : count(varint) entry*
+ *   HELLO : target(str)          … target（空なら全ノード）に全量を要求
+ *   BYE   :                      … 停止するノード
+ *   RESET : count(varint) uuid*  … 全量の送り直しの始まり。この一覧に無いプレイヤーは受け手が捨てる
+ * entry : kind(1) uuid(16) ...
+ *   FULL  : name(str) count(varint) put*   … その人の効果を置き換える
+ *   DELTA : count(varint) (put | remove)*  … 変わった効果だけ
+ *   LEAVE :                                … 退出
+ * put   : 0 type(str) amplifier(varint) ticks(zigzag)   ticks は送信時点の残り（-1 で無期限）
+ * remove: 1 type(str)
+ * </pre>
+ * 効果の型は minecraft: を省いたキー。残り時間は受け手が受信時刻から数えるので、時間の経過だけでは送らない。
+ */
+public final class ClusterCodec {
+
+    static final int VERSION = 1;
+
+    public static final int DATA = 0, HELLO = 1, BYE = 2, RESET = 3;
+    public static final int FULL = 0, DELTA = 1, LEAVE = 2;
+
+    private static final int OP_PUT = 0, OP_REMOVE = 1;
+
+    private ClusterCodec() {}
+
+    public record Op(String type, boolean remove, int amplifier, int ticks) {
+        public static Op put(String type, int amplifier, int ticks) { return new Op(type, false, amplifier, ticks); }
+        public static Op remove(String type) { return new Op(type, true, 0, 0); }
+    }
+
+    public record Entry(int kind, UUID player, String name, List<Op> ops) {}
+
+    /** target は HELLO、roster は RESET のみ */
+    public record Frame(int version, String node, long seq, int kind, String target, List<Entry> entries, List<UUID> roster) {}
+
+    // ===== 書き込み =====
+    public static byte[] data(String node, long seq, List<Entry> entries) {
+        Out out = header(node, seq, DATA);
+        out.varint(entries.size());
+        for (Entry e : entries) {
+            out.u8(e.kind());
+            out.uuid(e.player());
+            if (e.kind() == LEAVE) continue;
+            if (e.kind() == FULL) out.str(e.name());
+            out.varint(e.ops().size());
+            for (Op op : e.ops()) {
+                out.u8(op.remove() ? OP_REMOVE : OP_PUT);
+                out.str(op.type());
+                if (op.remove()) continue;
+                out.varint(op.amplifier());
+                out.varint((op.ticks() << 1) ^ (op.ticks() >> 31));
+            }
+        }
+        return out.bytes();
+    }
+
+    public static byte[] hello(String node, long seq, String target) {
+        Out out = header(node, seq, HELLO);
+        out.str(target == null ? "" : target);
+        return out.bytes();
+    }
+
+    public static byte[] bye(String node, long seq) {
+        return header(node, seq, BYE).bytes();
+    }
+
+    public static byte[] reset(String node, long seq, List<UUID> roster) {
+        Out out = header(node, seq, RESET);
+        out.varint(roster.size());
+        for (UUID id : roster) out.uuid(id);
+        return out.bytes();
+    }
+
+    private static Out header(String node, long seq, int kind) {
+        Out out = new Out();
+        out.u8(VERSION);
+        out.str(node);
+        out.varlong(seq);
+        out.u8(kind);
+        return out;
+    }
+
+    // ===== 読み込み =====
+    /** 壊れたフレーム・未知の版は IllegalArgumentException */
+    public static Frame read(byte[] frame) {
+        In in = new In(frame);
+        int version = in.u8();
+        if (version != VERSION) throw new IllegalArgumentException("unsupported version " + version);
+        String node = in.str();
+        long seq = in.varlong();
+        int kind = in.u8();
+        if (kind == HELLO) return new Frame(version, node, seq, kind, in.str(), List.of(), List.of());
+        if (kind == BYE) return new Frame(version, node, seq, kind, null, List.of(), List.of());
+        if (kind == RESET) {
+            int n = in.count();
+            List<UUID> roster = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) roster.add(in.uuid());
+            return new Frame(version, node, seq, kind, null, List.of(), roster);
+        }
+        if (kind != DATA) throw new IllegalArgumentException("unknown frame kind " + kind);
+
+        int n = in.count();
+        List<Entry> entries = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int ek = in.u8();
+            UUID player = in.uuid();
+            if (ek == LEAVE) {
+                entries.add(new Entry(ek, player, null, List.of()));
+                continue;
+            }
+            if (ek != FULL && ek != DELTA) throw new IllegalArgumentException("unknown entry kind " + ek);
+            String name = ek == FULL ? in.str() : null;
+            int m = in.count();
+            List<Op> ops = new ArrayList<>(m);
+            for (int j = 0; j < m; j++) {
+                int op = in.u8();
+                String type = in.str();
+                if (op == OP_REMOVE) {
+                    ops.add(Op.remove(type));
+                } else {
+                    int amp = in.varint();
+                    int z = in.varint();
+                    ops.add(Op.put(type, amp, (z >>> 1) ^ -(z & 1)));
+                }
+            }
+            entries.add(new Entry(ek, player, name, ops));
+        }
+        return new Frame(version, node, seq, kind, null, entries, List.of());
+    }
+
+    private static final class Out {
+        private byte[] buf = new byte[64];
+        private int pos;
+
+        private void ensure(int n) {
+            if (pos + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+        }
+
+        void u8(int v) {
+            ensure(1);
+            buf[pos++] = (byte) v;
+        }
+
+        void varint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void varlong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void str(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            varint(b.length);
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, pos, b.length);
+            pos += b.length;
+        }
+
+        void uuid(UUID id) {
+            long hi = id.getMostSignificantBits(), lo = id.getLeastSignificantBits();
+            ensure(16);
+            for (int i = 7; i >= 0; i--) buf[pos++] = (byte) (hi >>> (i * 8));
+            for (int i = 7; i >= 0; i--) buf[pos++] = (byte) (lo >>> (i * 8));
+        }
+
+        byte[] bytes() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static final class In {
+        private final byte[] buf;
+        private int pos;
+
+        In(byte[] buf) {
+            this.buf = buf;
+        }
+
+        private void need(int n) {
+            if (pos + n > buf.length) throw new IllegalArgumentException("truncated frame");
+        }
+
+        int u8() {
+            need(1);
+            return buf[pos++] & 0xFF;
+        }
+
+        int varint() {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = u8();
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IllegalArgumentException("varint too long");
+        }
+
+        long varlong() {
+            long v = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = u8();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IllegalArgumentException("varlong too long");
+        }
+
+        /** 要素数（残りのバイト数を超える数は壊れたフレームとして扱う） */
+        int count() {
+            int n = varint();
+            if (n < 0 || n > buf.length - pos) throw new IllegalArgumentException("bad count " + n);
+            return n;
+        }
+
+        String str() {
+            int n = count();
+            String s = new String(buf, pos, n, StandardCharsets.UTF_8);
+            pos += n;
+            return s;
+        }
+
+        UUID uuid() {
+            need(16);
+            long hi = 0, lo = 0;
+            for (int i = 0; i < 8; i++) hi = (hi << 8) | (buf[pos++] & 0xFF);
+            for (int i = 0; i < 8; i++) lo = (lo << 8) | (buf[pos++] & 0xFF);
+            return new UUID(hi, lo);
+        }
+    }
+}
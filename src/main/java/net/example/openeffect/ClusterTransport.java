@@ -0,0 +1,22 @@
+package net.example.openeffect;
+
+import java.util.function.Consumer;
+
+/**
+ * クラスタ（プロキシ配下の複数サーバー）間でフレームを配る送信口。
+ * - socket : 同じマシンのサーバー同士を Unix ドメインソケットで中継（LocalSocketTransport）
+ * - memory : 同じ JVM 内だけ（テスト用、LocalClusterTransport）
+ * - service: 別プラグインが ServicesManager に登録した実装（Redis など）
+ * フレームは自分以外の全ノードへ届けばよく、順序は送信元ごとに保たれていること。
+ * 受信コールバックは実装のスレッドから呼ばれる。
+ */
+public interface ClusterTransport {
+
+    /** 受信を始める（frame は呼び出し後に書き換えない） */
+    void start(Consumer<byte[]> receiver);
+
+    /** 自分以外の全ノードへ送る（ブロックしない） */
+    void publish(byte[] frame);
+
+    void close();
+}
@@ -0,0 +1,326 @@
+package net.example.openeffect;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * クラスタ（プロキシ配下の複数サーバー）全体の効果一覧。
+ * 送信側:
+ * - 効果が変わったプレイヤーに印を付け、publishTicks ごとに「前回送った内容との差分」だけを1フレームにまとめて送る
+ *   （追加・削除・レベル変更・掛け直しのみ。残り時間が減っていくだけなら送らない）
+ * - 効果の読み取りは各プレイヤーのスレッドで行う（Folia）。結果は次の送信でまとめて出る
+ * - 何も無い周期でも heartbeat ごとに空のフレームを送り、生存を知らせる
+ * 受信側:
+ * - ノードごとに連番を確認し、抜け（取りこぼし）や知らないノードを見たらそのノードに全量を要求する
+ * - 全量の送り直しは RESET（その時のオンライン一覧）から始まる。一覧に無いプレイヤー
+ *   （抜けの間に LEAVE を取りこぼした分）はそこで捨てる
+ * - timeoutSeconds 何も届かないノード、BYE を送ったノードのプレイヤーは一覧から外す
+ * 受信はトランスポートのスレッドから来るので、受信側の状態は this で同期し、GUI には不変の RemotePlayer を渡す。
+ */
+public class ClusterView {
+
+    /** 他ノードにいるプレイヤー（不変） */
+    public record RemotePlayer(UUID id, String name, String node, List<RemoteEffect> effects) {}
+
+    /** expiresAt は受信時刻から数えた終了時刻（ミリ秒、無期限は Long.MAX_VALUE） */
+    public record RemoteEffect(String type, int amplifier, long expiresAt) {
+
+        /** 残り tick（GUI 表示用） */
+        public int ticksLeft(long nowMillis) {
+            if (expiresAt == Long.MAX_VALUE) return PotionEffect.INFINITE_DURATION;
+            return (int) Math.max(0, (expiresAt - nowMillis) / 50);
+        }
+    }
+
+    // 掛け直し判定の許容差（tick）。送信時刻のずれで毎回差分にならないように
+    private static final int REAPPLY_SLACK = 2;
+
+    /** 送った内容（プレイヤーのスレッドからだけ触る） */
+    private record Sent(int amplifier, long endTick) {}
+
+    private static final class Node {
+        long seq = -1;
+        long lastSeen;
+        long helloAt; // 全量を要求した時刻（連続で要求しない）
+        final Map<UUID, RemotePlayer> players = new HashMap<>();
+    }
+
+    private final Plugin plugin;
+    private final TaskRunner runner;
+    private final Stats stats;
+    private final ClusterTransport transport;
+    private final String nodeId;
+    private final long heartbeatMillis, timeoutMillis;
+
+    // 送信側
+    private long seq; // 送信は global のタイマー（と起動・停止）からだけ
+    private long lastSentAt;
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> left = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Map<String, Sent>> sent = new ConcurrentHashMap<>();
+    private final Queue<ClusterCodec.Entry> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean resyncAll = true; // 起動直後は全員の全量を送る
+    private final Set<String> wantFull = ConcurrentHashMap.newKeySet(); // 全量を要求するノード（受信側から）
+
+    // 受信側（this で同期）
+    private final Map<String, Node> nodes = new HashMap<>();
+    // GUI から読む一覧（作り直して差し替える）
+    private volatile Map<UUID, RemotePlayer> remote = Map.of();
+    private volatile List<RemotePlayer> sorted = List.of();
+
+    public ClusterView(Plugin plugin, TaskRunner runner, Stats stats, ClusterTransport transport,
+                       String nodeId, long heartbeatSeconds, long timeoutSeconds) {
+        this.plugin = plugin;
+        this.runner = runner;
+        this.stats = stats;
+        this.transport = transport;
+        this.nodeId = nodeId;
+        this.heartbeatMillis = Math.max(1, heartbeatSeconds) * 1000L;
+        this.timeoutMillis = Math.max(heartbeatSeconds * 2, timeoutSeconds) * 1000L;
+    }
+
+    public void start() {
+        transport.start(this::receive);
+        send(ClusterCodec.hello(nodeId, ++seq, "")); // 既にいるノードから全量をもらう
+    }
+
+    public void shutdown() {
+        try {
+            send(ClusterCodec.bye(nodeId, ++seq));
+        } finally {
+            transport.close();
+        }
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    // ===== 送信側 =====
+    /** 効果が変わった（次の送信で差分を出す） */
+    public void markDirty(UUID id) {
+        dirty.add(id);
+    }
+
+    public void playerLeft(UUID id) {
+        dirty.remove(id);
+        sent.remove(id);
+        left.add(id);
+    }
+
+    /** publishTicks ごと（global のタイマー）：差分を集めて1フレームで送る */
+    public void tick() {
+        if (resyncAll) {
+            resyncAll = false;
+            List<UUID> roster = new ArrayList<>();
+            for (Player p : Bukkit.getOnlinePlayers()) roster.add(p.getUniqueId());
+            send(ClusterCodec.reset(nodeId, ++seq, roster));
+            for (Player p : Bukkit.getOnlinePlayers()) {
+                runner.runFor(p, () -> { if (p.isOnline()) pending.add(snapshot(p, true)); });
+            }
+            dirty.clear();
+        }
+        for (Iterator<String> it = wantFull.iterator(); it.hasNext(); ) {
+            send(ClusterCodec.hello(nodeId, ++seq, it.next()));
+            it.remove();
+        }
+        for (Iterator<UUID> it = dirty.iterator(); it.hasNext(); ) {
+            UUID id = it.next();
+            it.remove();
+            Player p = Bukkit.getPlayer(id);
+            if (p == null) continue; // 退出は playerLeft で送る
+            runner.runFor(p, () -> {
+                if (!p.isOnline()) return;
+                ClusterCodec.Entry e = snapshot(p, false);
+                if (e != null) pending.add(e);
+            });
+        }
+
+        List<ClusterCodec.Entry> entries = new ArrayList<>();
+        for (Iterator<UUID> it = left.iterator(); it.hasNext(); ) {
+            entries.add(new ClusterCodec.Entry(ClusterCodec.LEAVE, it.next(), null, List.of()));
+            it.remove();
+        }
+        for (ClusterCodec.Entry e; (e = pending.poll()) != null; ) entries.add(e);
+
+        long now = System.currentTimeMillis();
+        if (!entries.isEmpty() || now - lastSentAt >= heartbeatMillis) {
+            send(ClusterCodec.data(nodeId, ++seq, entries));
+        }
+        expireNodes(now);
+    }
+
+    /** p の現在の効果と前回送った内容の差分（full なら全量。差分が無ければ null）。p のスレッドで */
+    private ClusterCodec.Entry snapshot(Player p, boolean full) {
+        long tick = runner.currentTick();
+        Map<String, Sent> before = full ? Map.of() : sent.getOrDefault(p.getUniqueId(), Map.of());
+        Map<String, Sent> now = new HashMap<>();
+        List<ClusterCodec.Op> ops = new ArrayList<>();
+        for (PotionEffect eff : p.getActivePotionEffects()) {
+            String type = EffectRenderer.typeKey(eff.getType());
+            if (type == null) continue;
+            int ticks = eff.isInfinite() ? -1 : eff.getDuration();
+            Sent s = new Sent(eff.getAmplifier(), ticks < 0 ? -1 : tick + ticks);
+            Sent prev = before.get(type);
+            now.put(type, prev != null && same(prev, s) ? prev : s);
+            if (prev == null || !same(prev, s)) ops.add(ClusterCodec.Op.put(type, s.amplifier(), ticks));
+        }
+        for (String type : before.keySet()) {
+            if (!now.containsKey(type)) ops.add(ClusterCodec.Op.remove(type));
+        }
+        sent.put(p.getUniqueId(), now);
+        if (full) return new ClusterCodec.Entry(ClusterCodec.FULL, p.getUniqueId(), p.getName(), ops);
+        return ops.isEmpty() ? null : new ClusterCodec.Entry(ClusterCodec.DELTA, p.getUniqueId(), null, ops);
+    }
+
+    private static boolean same(Sent a, Sent b) {
+        if (a.amplifier() != b.amplifier()) return false;
+        if (a.endTick() < 0 || b.endTick() < 0) return a.endTick() == b.endTick();
+        return Math.abs(a.endTick() - b.endTick()) <= REAPPLY_SLACK;
+    }
+
+    private void send(byte[] frame) {
+        lastSentAt = System.currentTimeMillis();
+        stats.count(Stats.Counter.CLUSTER_SEND);
+        stats.add(Stats.Counter.CLUSTER_BYTES, frame.length);
+        transport.publish(frame);
+    }
+
+    // ===== 受信側 =====
+    private synchronized void receive(byte[] bytes) {
+        ClusterCodec.Frame f;
+        try {
+            f = ClusterCodec.read(bytes);
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("[cluster] 読めないフレームを捨てました: " + e.getMessage());
+            return;
+        }
+        if (f.node().equals(nodeId)) return;
+        long now = System.currentTimeMillis();
+
+        if (f.kind() == ClusterCodec.BYE) {
+            dropNode(f.node());
+            return;
+        }
+        Node n = nodes.computeIfAbsent(f.node(), k -> new Node());
+        n.lastSeen = now;
+        boolean gap = n.seq >= 0 && f.seq() != n.seq + 1;
+        boolean unknown = n.seq < 0 && f.kind() == ClusterCodec.DATA;
+        n.seq = f.seq();
+
+        if (f.kind() == ClusterCodec.HELLO) {
+            if (f.target().isEmpty() || f.target().equals(nodeId)) resyncAll = true;
+            return;
+        }
+        if (gap || unknown) requestFull(f.node(), n, now);
+
+        if (f.kind() == ClusterCodec.RESET) {
+            // 続く FULL で上書きされるので、ここでは一覧に無い人を捨てるだけ（表示が一瞬空にならないように）
+            if (n.players.keySet().retainAll(new HashSet<>(f.roster()))) reindex();
+            return;
+        }
+        boolean changed = false;
+        for (ClusterCodec.Entry e : f.entries()) {
+            switch (e.kind()) {
+                case ClusterCodec.LEAVE -> changed |= n.players.remove(e.player()) != null;
+                case ClusterCodec.FULL -> {
+                    n.players.put(e.player(), new RemotePlayer(e.player(), e.name(), f.node(), apply(List.of(), e.ops(), now)));
+                    changed = true;
+                }
+                case ClusterCodec.DELTA -> {
+                    RemotePlayer rp = n.players.get(e.player());
+                    if (rp == null) { // 全量を受け取る前の差分（取りこぼし）
+                        requestFull(f.node(), n, now);
+                        continue;
+                    }
+                    n.players.put(e.player(), new RemotePlayer(rp.id(), rp.name(), rp.node(), apply(rp.effects(), e.ops(), now)));
+                    changed = true;
+                }
+                default -> {}
+            }
+        }
+        if (changed) reindex();
+    }
+
+    private static List<RemoteEffect> apply(List<RemoteEffect> base, List<ClusterCodec.Op> ops, long now) {
+        Map<String, RemoteEffect> m = new LinkedHashMap<>();
+        for (RemoteEffect r : base) m.put(r.type(), r);
+        for (ClusterCodec.Op op : ops) {
+            if (op.remove()) {
+                m.remove(op.type());
+            } else {
+                long exp = op.ticks() < 0 ? Long.MAX_VALUE : now + op.ticks() * 50L;
+                m.put(op.type(), new RemoteEffect(op.type(), op.amplifier(), exp));
+            }
+        }
+        return List.copyOf(m.values());
+    }
+
+    /** 送信は次の tick で（連番を送信側のスレッドだけで進めるため） */
+    private void requestFull(String node, Node n, long now) {
+        if (now - n.helloAt < heartbeatMillis) return;
+        n.helloAt = now;
+        wantFull.add(node);
+    }
+
+    private synchronized void expireNodes(long now) {
+        List<String> dead = new ArrayList<>();
+        for (Map.Entry<String, Node> e : nodes.entrySet()) {
+            if (now - e.getValue().lastSeen > timeoutMillis) dead.add(e.getKey());
+        }
+        for (String node : dead) dropNode(node);
+    }
+
+    private void dropNode(String node) {
+        Node n = nodes.remove(node);
+        if (n == null) return;
+        if (!n.players.isEmpty()) reindex();
+        plugin.getLogger().info("[cluster] ノード " + node + " を一覧から外しました");
+    }
+
+    /** 名前順の一覧と UUID 索引を作り直す（変化のあったフレームごとに1回） */
+    private void reindex() {
+        List<RemotePlayer> all = new ArrayList<>();
+        for (Node n : nodes.values()) all.addAll(n.players.values());
+        all.sort(Comparator.comparing(RemotePlayer::name, String.CASE_INSENSITIVE_ORDER).thenComparing(RemotePlayer::id));
+        Map<UUID, RemotePlayer> byId = new HashMap<>();
+        for (RemotePlayer rp : all) byId.put(rp.id(), rp);
+        remote = Collections.unmodifiableMap(byId);
+        sorted = List.copyOf(all);
+    }
+
+    // ===== GUI 向け =====
+    /** 他ノードのプレイヤー数 */
+    public int size() {
+        return sorted.size();
+    }
+
+    /** 名前順で start 番目から最大 count 人 */
+    public List<RemotePlayer> page(int start, int count) {
+        List<RemotePlayer> cur = sorted;
+        if (start >= cur.size() || count <= 0) return List.of();
+        return cur.subList(Math.max(0, start), Math.min(cur.size(), start + count));
+    }
+
+    public RemotePlayer player(UUID id) {
+        return remote.get(id);
+    }
+
+    /** 一覧にいる他ノードのプレイヤー（読み取り専用） */
+    public Set<UUID> ids() {
+        return remote.keySet();
+    }
+
+    /** GUI 用に PotionEffect に戻す（このサーバーで知らない型は null） */
+    public static PotionEffect toPotionEffect(RemoteEffect r, long nowMillis) {
+        PotionEffectType type = EffectRenderer.typeOf(r.type());
+        return type == null ? null : new PotionEffect(type, r.ticksLeft(nowMillis), r.amplifier());
+    }
+}
@@ -0,0 +1,78 @@
+package net.example.openeffect;
+
+import java.util.*;
+
+/**
+ * 残り時間表示の「次に桁が変わる tick」で target を起こすハッシュ化タイミングホイール。
+ * - スロット = 期限 tick の下位ビット（1周を超える期限は周回数で判定）
+ * - 1 target につき有効な予約は常に1つ（再予約すると古い予約は無視される）
+ * - advance は経過 tick 分のスロットだけを見るので、待機中の target 数に依存しない
+ */
+public class CountdownWheel {
+
+    private static final int SLOTS = 64; // 2の累乗
+    private static final int MASK = SLOTS - 1;
+
+    private static final class Entry {
+        final UUID id;
+        final long due;
+        Entry(UUID id, long due) { this.id = id; this.due = due; }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final List<Entry>[] wheel = new List[SLOTS];
+    // target -> 有効な予約の期限 tick
+    private final Map<UUID, Long> scheduled = new HashMap<>();
+    private long cursor = Long.MIN_VALUE; // 最後に処理した tick
+
+    public CountdownWheel() {
+        for (int i = 0; i < SLOTS; i++) wheel[i] = new ArrayList<>();
+    }
+
+    /** target を due tick に起こす（既存の予約は置き換え） */
+    public void schedule(UUID id, long due) {
+        if (cursor != Long.MIN_VALUE && due <= cursor) due = cursor + 1; // 処理済みスロットに積まない
+        Long prev = scheduled.put(id, due);
+        if (prev != null && prev == due) return; // 同じ予約は積まない
+        wheel[(int) (due & MASK)].add(new Entry(id, due));
+    }
+
+    public void cancel(UUID id) {
+        scheduled.remove(id); // スロット上のエントリは発火時に捨てる
+    }
+
+    public void clear() {
+        scheduled.clear();
+        for (List<Entry> slot : wheel) slot.clear();
+    }
+
+    public int size() {
+        return scheduled.size();
+    }
+
+    /** now までに期限を迎えた target を out に追加する */
+    public void advance(long now, Collection<UUID> out) {
+        if (cursor == Long.MIN_VALUE || now - cursor > SLOTS) cursor = now - SLOTS; // 初回/大きな遅延は1周分だけ見る
+        while (cursor < now) {
+            cursor++;
+            List<Entry> slot = wheel[(int) (cursor & MASK)];
+            for (int i = slot.size() - 1; i >= 0; i--) {
+                Entry e = slot.get(i);
+                if (e.due > now) continue; // 次の周回で発火
+                removeAt(slot, i);
+                Long live = scheduled.get(e.id);
+                if (live != null && live == e.due) {
+                    scheduled.remove(e.id);
+                    out.add(e.id);
+                }
+            }
+        }
+    }
+
+    // 順序は不要なので末尾と入れ替えて O(1) 削除
+    private static void removeAt(List<Entry> slot, int i) {
+        int last = slot.size() - 1;
+        if (i != last) slot.set(i, slot.get(last));
+        slot.remove(last);
+    }
+}
@@ -0,0 +1,31 @@
+package net.example.openeffect;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+
+/**
+ * 頭上表示の実装切り替え口。
+ * - entity : サーバー上に TextDisplay を実体として生成（既定）
+ * - virtual: サーバーには何も生成せず、見える viewer にだけパケットを送る
+ */
+public interface DisplayBackend {
+
+    /** target 用の表示を at に生成する（初期状態は全員に非表示） */
+    OverheadDisplay spawn(Player target, Location at);
+
+    /** viewer のクライアント側エンティティが消えた時（リスポーン/ワールド移動）の通知 */
+    default void viewerReset(Player viewer) {}
+
+    /** viewer がログアウトした時の掃除 */
+    default void viewerQuit(UUID viewerId) {}
+
+    /** 使い終わった表示を返す（実装によっては消さずに次の spawn で再利用する） */
+    default void release(OverheadDisplay display) {
+        display.remove();
+    }
+
+    /** 停止時：再利用待ちの表示も含めて消す */
+    default void shutdown() {}
+}
@@ -3,85 +3,356 @@ package net.example.openeffect;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.World;
 import org.bukkit.entity.Display.Billboard;
 import org.bukkit.entity.Player;
-import org.bukkit.entity.TextDisplay;
 import org.bukkit.potion.PotionEffect;
+import org.bukkit.util.Transformation;
 import org.bukkit.util.Vector;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * TextDisplay を使ってプレイヤー頭上に複数行の効果一覧を表示する。
- * - 1プレイヤーにつき TextDisplay を1体保持（複数行は \n に結合）
- * - viewerごとの showEntity/hideEntity を都度適用（トグル・再生成に強い）
+ * - 1プレイヤーにつき表示を1つ保持（複数行は \n に結合）。実体/仮想は DisplayBackend で切替
+ * - viewerごとの show/hide は SpatialIndex で近傍（viewRadius 以内）のペアだけ判定し、
+ *   VisibilityState の現在値との差分だけ適用
  * - setText(Component)/setText(String) の両APIに自動対応
  * - オフライン掃除で残留を防止
+ * - positionMode: passenger ではプレイヤーに相乗りさせ、高さは Transformation で適用
+ *   （乗車が外れた時だけテレポートで付け直す）。offsetRight/offsetForward は使わない
+ * - positionMode: interpolate ではテレポートをクライアント側で補間させ、位置は MotionSmoother が
+ *   間引いた時（一定 tick ごと・予測から外れた時）だけ送る
  * - 「自分の頭上だけ非表示」のポリシーは OpenEffectPlugin#canSeeOwnOverhead を参照
+ * - テキスト更新は EffectTracker が変化ありとした target のみ（残り時間は秒の境目でだけ再描画）
+ *   1tick の処理時間は UpdateScheduler の予算（updateBudgetMicros）までで、残りは次の tick へ持ち越す。
+ *   予算には先に行う位置合わせ（teleport/interpolate）の時間も含める（位置合わせ自体は毎回全員分行う）
+ * - 移動イベントは「位置が変わった」印を付けるだけ。tick の終わりに1回だけ反映する（テキストは再描画しない）
+ * - Folia では target ごとのタスク（tickTarget）が所属リージョンのスレッドで自分の表示だけを更新する。
+ *   可視判定も各リージョンのスレッドで並行に行う（全体のロックは無い）。近傍インデックスはセル単位、
+ *   可視状態はスロット単位でロックし、作業バッファはスレッドごと。show/hide は viewer のスレッドへ回す。
+ *   表示の取り外し（deactivate 等）と show の記録は、その表示（OverheadDisplay）のロックで排他する
+ * - 表示は「見せる viewer が1人以上いる target」の分だけ持つ。可視判定で初めて見せる必要が出た時に用意し
+ *   （activate）、最後の viewer がいなくなったら返却する（deactivate、entity ならプールへ）。
+ *   表示の無い target はテキストも描画しない（HUD・効果一覧GUIで使われている時だけ描画する）
  */
 public class DisplayManager {
 
     private final OpenEffectPlugin core;
-
-    // targetUUID -> TextDisplay（表示される“所有者”）
-    private final Map<UUID, TextDisplay> displays = new HashMap<>();
+    private final Stats stats;
+    private final TaskRunner runner;
+    private final EffectTracker tracker;
+    // 時間予算付きの更新待ち行列（単一スレッド時のみ。Folia では null）
+    private final UpdateScheduler scheduler;
+    private final Consumer<UUID> updateById = this::updateById;
+
+    // 取りこぼし対策の全体掃除間隔（tick 呼び出し回数）
+    private static final int SWEEP_INTERVAL = 100;
+    private int tickCount;
+
+    // targetUUID -> 表示（表示される“所有者”）
+    private final Map<UUID, OverheadDisplay> displays = new ConcurrentHashMap<>();
     // 直近の描画内容（変化検知）
-    private final Map<UUID, String> lastText = new HashMap<>();
+    private final Map<UUID, String> lastText = new ConcurrentHashMap<>();
+    // この tick に動いた target（flushMoved / tickTarget で1回だけ処理）
+    private final Set<UUID> moved = ConcurrentHashMap.newKeySet();
+    private volatile boolean followOnMove = true; // updateOnMove（teleport モードで移動に追従）
+    // target を描画し直した時の通知先（効果一覧GUIの自動更新）
+    private volatile Consumer<UUID> renderListener = id -> {};
+    // 表示が無くてもテキストが要る target（HUD・効果一覧GUI）
+    private volatile Predicate<UUID> renderDemand = id -> false;
+    // 可視判定の結果、表示の用意/返却が必要になった target（vis のロックを出てから target のスレッドで処理）
+    private final Set<UUID> toActivate = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> toRelease = ConcurrentHashMap.newKeySet();
+
+    // 可視状態（viewer ごとの表示中 target をスロットの BitSet で保持）と近傍インデックス。どちらも並行に使える
+    private final VisibilityState vis = new VisibilityState();
+    private final SpatialIndex index;
+
+    // 可視判定の作業バッファ（スレッドごと）
+    private static final class Scratch {
+        final List<UUID> near = new ArrayList<>();
+        final BitSet desired = new BitSet();
+        final BitSet current = new BitSet();
+    }
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
 
     // config
     private final double offRight, offForward;
     private final double topUp;      // 上端の高さ
-    private final boolean showPlayerName;
-    private final String language;
+    private final boolean passengerMode; // true: 相乗り / false: 毎回テレポート
+    private final MotionSmoother smoother; // interpolate の時だけ（それ以外は null）
+
+    // 描画（名前テーブル・バッファ）と setText の解決結果
+    private final EffectRenderer renderer;
+    private final TextSetter texts;
+    private final DisplayBackend backend;
 
-    public DisplayManager(OpenEffectPlugin plugin) {
+    public DisplayManager(OpenEffectPlugin plugin, TaskRunner runner, EffectTracker tracker) {
         this.core = plugin;
+        this.stats = plugin.stats();
+        this.runner = runner;
+        this.tracker = tracker;
         var cfg = plugin.getConfig();
         this.offRight       = cfg.getDouble("offsetRight",   0.0);
         this.offForward     = cfg.getDouble("offsetForward", 0.0);
         this.topUp          = cfg.getDouble("box.topUp",     1.90);
-        this.showPlayerName = cfg.getBoolean("showPlayerName", false);
-        this.language       = cfg.getString("language", "ja");
+        String mode         = cfg.getString("positionMode", "teleport");
+        this.passengerMode  = "passenger".equalsIgnoreCase(mode);
+        if (passengerMode && (offRight != 0.0 || offForward != 0.0)) {
+            plugin.getLogger().warning("positionMode: passenger では offsetRight/offsetForward は使われません（高さ box.topUp のみ）。");
+        }
+        this.smoother       = "interpolate".equalsIgnoreCase(mode)
+                ? new MotionSmoother(cfg.getInt("interpolateTicks", 5), cfg.getDouble("interpolateDrift", 0.3))
+                : null;
+        this.renderer = new EffectRenderer(cfg.getString("language", "ja"), cfg.getBoolean("showPlayerName", false));
+        this.texts    = new TextSetter();
+        this.backend  = createBackend(cfg.getString("displayBackend", "entity"));
+        this.index    = new SpatialIndex(cfg.getDouble("viewRadius", 64.0));
+        this.scheduler = runner.isRegionized() ? null : new UpdateScheduler(cfg.getLong("updateBudgetMicros", 2000));
+    }
+
+    /** displayBackend: entity | virtual（virtual は PacketSink が登録されている時のみ） */
+    private DisplayBackend createBackend(String kind) {
+        // 相乗り時は平行移動をカメラ基準で傾けないよう縦軸のみ回転させる
+        Billboard billboard = passengerMode ? Billboard.VERTICAL : Billboard.CENTER;
+        int teleportTicks = smoother == null ? 0 : smoother.interval(); // クライアント側の補間時間
+        if ("virtual".equalsIgnoreCase(kind)) {
+            PacketSink sink = null;
+            try { sink = Bukkit.getServicesManager().load(PacketSink.class); } catch (Throwable ignore) {}
+            if (sink != null) return new VirtualDisplayBackend(sink, billboard, teleportTicks);
+            core.getLogger().warning("displayBackend: virtual には PacketSink の登録が必要です。entity で動作します。");
+        }
+        return new EntityDisplayBackend(core, runner, billboard, texts, teleportTicks,
+                core.getConfig().getInt("displayPoolSize", 16));
     }
 
     // --- 管理 ---
     public void ensureAllTargets() {
-        for (Player p : Bukkit.getOnlinePlayers()) ensureTarget(p);
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            ensureTarget(p);
+            onMoved(p, p.getLocation()); // 乗り物移動など PlayerMoveEvent の出ない移動を拾う
+        }
         removeOfflineTargets(); // 念のため掃除
+        for (UUID id : displays.keySet()) { // 見る人のいない表示の返却漏れ
+            int ts = vis.slotIfPresent(id);
+            if (ts < 0 || !vis.hasViewers(ts)) toRelease.add(id);
+        }
+        flushDemand();
     }
 
+    /** target として登録する。表示は見せる viewer がいる時だけ用意される */
     public void ensureTarget(Player target) {
         if (target == null || !target.isOnline()) return;
-        displays.computeIfAbsent(target.getUniqueId(), k -> {
-            TextDisplay td = spawnDisplay(target);
-            reapplyVisibilityFor(target.getUniqueId(), td);
-            return td;
-        });
-        lastText.putIfAbsent(target.getUniqueId(), "");
+        UUID id = target.getUniqueId();
+        if (!index.contains(id)) index.update(id, target.getLocation());
+        if (lastText.putIfAbsent(id, "") == null) {
+            tracker.markDirty(id); // 新規 target は初回描画が必要
+            reapplyVisibilityFor(id);
+        }
+    }
+
+    /** 見せる viewer ができた target の表示を用意し、テキストと位置を反映してから見せる（target のスレッドで） */
+    private void activate(Player target) {
+        UUID id = target.getUniqueId();
+        if (!target.isOnline() || !lastText.containsKey(id) || hasDisplay(id)) return;
+        if (!demanded(id)) return; // その間に誰もいなくなった
+        displays.put(id, spawnDisplay(target));
+        lastText.put(id, ""); // 新しい表示にはテキストを必ず送る
+        updateOne(target);
+        reapplyVisibilityFor(id);
+    }
+
+    /** 最後の viewer がいなくなった target の表示を返却する（target のスレッドで） */
+    private void deactivate(UUID id) {
+        OverheadDisplay td = displays.get(id);
+        if (td == null) return;
+        synchronized (td) { // setShown と同じロック：見る人がいないことの確認と取り外しの間に見せられないように
+            int ts = vis.slotIfPresent(id);
+            if (ts >= 0 && vis.hasViewers(ts)) return; // その間に見る人が戻った
+            if (!displays.remove(id, td)) return;
+            forgetDisplay(id);
+        }
+        if (smoother != null) smoother.forget(id);
+        backend.release(td);
+    }
+
+    /** 表示を displays から外し、その target の可視状態を破棄する（外せた時だけ true） */
+    private boolean unlinkDisplay(UUID id, OverheadDisplay td) {
+        synchronized (td) {
+            if (!displays.remove(id, td)) return false;
+            forgetDisplay(id);
+            return true;
+        }
+    }
+
+    /** 近傍に、この target を見せるべき viewer が1人でもいるか */
+    private boolean demanded(UUID targetId) {
+        List<UUID> near = SCRATCH.get().near;
+        near.clear();
+        index.nearby(targetId, near);
+        for (UUID v : near) {
+            Player pv = Bukkit.getPlayer(v);
+            if (pv != null && wants(pv, targetId)) return true;
+        }
+        return false;
+    }
+
+    /** 可視判定で溜まった用意/返却を target のスレッドへ回す */
+    private void flushDemand() {
+        if (toActivate.isEmpty() && toRelease.isEmpty()) return;
+        for (Iterator<UUID> it = toActivate.iterator(); it.hasNext(); ) {
+            Player p = Bukkit.getPlayer(it.next());
+            it.remove();
+            if (p != null) runner.runFor(p, () -> activate(p));
+        }
+        for (Iterator<UUID> it = toRelease.iterator(); it.hasNext(); ) {
+            UUID id = it.next();
+            it.remove();
+            Player p = Bukkit.getPlayer(id);
+            if (p != null) runner.runFor(p, () -> deactivate(id)); // オフラインなら removeTarget が片付ける
+        }
     }
 
     public void removeTarget(UUID targetId) {
-        TextDisplay td = displays.remove(targetId);
-        if (td != null && !td.isDead()) td.remove();
+        OverheadDisplay td = displays.get(targetId);
+        if (td != null && unlinkDisplay(targetId, td)) backend.release(td); // 次に参加した target で再利用
+        forgetDisplay(targetId);
+        index.remove(targetId);
         lastText.remove(targetId);
+        moved.remove(targetId);
+        if (smoother != null) smoother.forget(targetId);
+        tracker.forget(targetId);
+        if (scheduler != null) scheduler.forget(targetId);
     }
 
     public void despawnAll() {
-        for (TextDisplay td : displays.values()) {
-            if (td != null && !td.isDead()) td.remove();
+        for (OverheadDisplay td : displays.values()) {
+            if (td != null) td.remove();
         }
         displays.clear();
+        if (smoother != null) smoother.clear();
+        toActivate.clear();
+        toRelease.clear();
+        backend.shutdown();
         lastText.clear();
+        moved.clear();
+        vis.clear();
+        index.clear();
+        tracker.clear();
+        if (scheduler != null) scheduler.clear();
     }
 
     private void removeOfflineTargets() {
         for (UUID id : new ArrayList<>(displays.keySet())) {
-            if (Bukkit.getPlayer(id) == null) removeTarget(id);
+            if (Bukkit.getPlayer(id) == null) {
+                removeTarget(id);
+                viewerQuit(id);
+            }
         }
     }
 
     // --- 更新 ---
+    /**
+     * 周期タスク本体。
+     *  - EffectTracker が変化ありとした target だけテキストを再構築（予算内で、優先度順に）
+     *  - teleport モードで updateOnMove: false なら全 target の位置合わせ（テキストは触らない）。
+     *    true なら移動は flushMoved に任せ、PlayerMoveEvent の出ない乗車中の target だけ合わせる
+     *    （interpolate では見かけの位置がまだ動いている target も。送るかどうかは MotionSmoother が決める）
+     *  - 一定間隔で全体掃除（イベント取りこぼし対策）
+     * Folia では使わない（tickTarget を参照）。
+     */
+    public void tick() {
+        if (++tickCount % SWEEP_INTERVAL == 0) {
+            ensureAllTargets();
+            scheduler.decay();
+        }
+
+        // 位置合わせは遅らせると表示がずれるので先に済ませ、かかった時間をテキスト更新の予算から引く
+        long t0 = System.nanoTime();
+        if (!passengerMode) {
+            boolean all = !followOnMove;
+            for (Map.Entry<UUID, OverheadDisplay> e : displays.entrySet()) {
+                Player target = Bukkit.getPlayer(e.getKey());
+                OverheadDisplay td = e.getValue();
+                if (target == null || td == null || !td.isValid()) continue;
+                if (all || target.isInsideVehicle() || settling(e.getKey())) position(target, td);
+            }
+        }
+
+        scheduler.offerAll(tracker.drain(runner.currentTick()));
+        scheduler.run(updateById, System.nanoTime() - t0);
+    }
+
+    /** 移動の印を付ける（PlayerMoveEvent から。ここでは何も計算しない） */
+    public void markMoved(Player p) {
+        moved.add(p.getUniqueId());
+    }
+
+    /** tick の終わりに1回：動いた target ごとに近傍セルの更新と位置合わせだけを行う。処理した人数を返す */
+    public int flushMoved() {
+        if (runner.isRegionized() || moved.isEmpty()) return 0; // Folia は tickTarget で処理
+        int n = 0;
+        for (Iterator<UUID> it = moved.iterator(); it.hasNext(); ) {
+            UUID id = it.next();
+            it.remove();
+            Player p = Bukkit.getPlayer(id);
+            if (p != null) {
+                applyMove(p);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private void applyMove(Player p) {
+        onMoved(p, p.getLocation());
+        if (passengerMode || !followOnMove) return; // 相乗り中はクライアント側で追従
+        OverheadDisplay td = displays.get(p.getUniqueId());
+        if (td != null && td.isValid()) position(p, td);
+    }
+
+    public void setRenderListener(Consumer<UUID> listener) {
+        this.renderListener = listener;
+    }
+
+    /** 表示（見せる viewer）が無くても描画が必要な target か（HUD の本人・効果一覧GUIの対象） */
+    public void setRenderDemand(Predicate<UUID> demand) {
+        this.renderDemand = demand;
+    }
+
+    /** updateOnMove の反映（config 読み込み時のみ） */
+    public void setFollowOnMove(boolean followOnMove) {
+        this.followOnMove = followOnMove;
+    }
+
+    private void updateById(UUID id) {
+        Player target = Bukkit.getPlayer(id);
+        if (target == null) removeTarget(id);
+        else updateOne(target);
+    }
+
+    /** Folia: target の所属リージョンのスレッドから周期的に呼ばれる（自分の表示だけを扱う） */
+    public void tickTarget(Player target) {
+        if (!target.isOnline()) return;
+        if (moved.remove(target.getUniqueId())) applyMove(target);
+        if (tracker.takeIfDue(target.getUniqueId(), runner.currentTick())) {
+            updateOne(target);
+        } else if (!passengerMode && (!followOnMove || target.isInsideVehicle() || settling(target.getUniqueId()))) {
+            OverheadDisplay td = displays.get(target.getUniqueId());
+            if (td != null && td.isValid()) position(target, td);
+        }
+    }
+
+    /** interpolate: 移動イベントが無くても補間の確認が要るか */
+    private boolean settling(UUID id) {
+        return smoother != null && smoother.isMoving(id);
+    }
+
     public void updateAll() {
         for (Player target : Bukkit.getOnlinePlayers()) updateOne(target);
         removeOfflineTargets();
@@ -92,24 +363,103 @@ public class DisplayManager {
 
         ensureTarget(target);
 
-        List<String> lines = buildEffectLines(target);
-        String joined = String.join("\n", lines);
         UUID id = target.getUniqueId();
+        OverheadDisplay td = displays.get(id);
+        if (td == null && !renderDemand.test(id)) {
+            // 誰にも見えず HUD/GUI でも使われていない：描画しない（残り時間の予約も止める。見せる時に描き直す）
+            tracker.noteRendered(id, Collections.emptyList(), runner.currentTick());
+            return;
+        }
+
+        Collection<PotionEffect> effects = target.getActivePotionEffects();
+        CharSequence text = renderer.render(target, effects, "\n");
+        tracker.noteRendered(id, effects, runner.currentTick());
+        renderListener.accept(id);
 
-        TextDisplay td = displays.get(id);
-        if (td == null || td.isDead()) {
+        if (td != null && !td.isValid()) {
+            unlinkDisplay(id, td);
             td = spawnDisplay(target);
             displays.put(id, td);
-            reapplyVisibilityFor(id, td);
+            reapplyVisibilityFor(id);
             lastText.put(id, "");
+        } else if (td != null && !td.isIn(target.getWorld())) {
+            td = rehome(target, td);
         }
 
-        if (!joined.equals(lastText.getOrDefault(id, ""))) {
-            setTextCompat(td, joined);
+        String last = lastText.get(id);
+        if (last == null || !last.contentEquals(text)) { // 変化時のみ String 化
+            String joined = text.toString();
+            if (td != null) setTextCompat(td, joined);
             lastText.put(id, joined);
+            if (scheduler != null) scheduler.noteChanged(id);
         }
 
-        td.teleport(textPos(target));
+        if (td != null) position(target, td);
+    }
+
+    /** target がワールドを移った時：表示を移動先ワールドのものに入れ替える（テキストは次の更新で） */
+    public void onWorldChanged(Player target) {
+        OverheadDisplay td = displays.get(target.getUniqueId());
+        if (td != null && td.isValid() && !td.isIn(target.getWorld())) rehome(target, td);
+    }
+
+    /** 別ワールドに残った表示を返却し、target のいるワールドで取り直す（実体はワールドを跨いでテレポートできない） */
+    private OverheadDisplay rehome(Player target, OverheadDisplay old) {
+        UUID id = target.getUniqueId();
+        unlinkDisplay(id, old);
+        backend.release(old);
+        OverheadDisplay td = spawnDisplay(target);
+        displays.put(id, td);
+        reapplyVisibilityFor(id);
+        lastText.put(id, "");
+        return td;
+    }
+
+    /** viewer のクライアント側エンティティが消えた時（リスポーン/ワールド移動） */
+    public void viewerReset(Player viewer) {
+        backend.viewerReset(viewer);
+    }
+
+    public void viewerQuit(UUID viewerId) {
+        int vs = vis.slotIfPresent(viewerId);
+        List<UUID> seen = new ArrayList<>();
+        if (vs >= 0) {
+            BitSet shown = SCRATCH.get().current;
+            vis.copyShown(vs, shown);
+            for (int t = shown.nextSetBit(0); t >= 0; t = shown.nextSetBit(t + 1)) seen.add(vis.idAt(t));
+        }
+        vis.release(viewerId);
+        index.remove(viewerId);
+        for (UUID t : seen) { // 最後の viewer だった target の表示は返却
+            int ts = t == null ? -1 : vis.slotIfPresent(t);
+            if (ts >= 0 && !vis.hasViewers(ts)) toRelease.add(t);
+        }
+        backend.viewerQuit(viewerId);
+        flushDemand();
+    }
+
+    /**
+     * 位置の反映。セルが変わった時だけ、viewer としても target としても近傍の可視性を見直す。
+     * 毎回の移動で呼んでもセル比較だけで終わる。
+     */
+    public void onMoved(Player p, Location to) {
+        if (!index.update(p.getUniqueId(), to)) return;
+        long t0 = stats.start();
+        if (p.isOnline()) diffViewer(p);
+        if (lastText.containsKey(p.getUniqueId())) diffTarget(p.getUniqueId()); // 表示が無くても、見せる相手ができたか
+        stats.stop(Stats.Stage.VISIBILITY, t0);
+        flushDemand();
+    }
+
+    /**
+     * 相乗りを一時的に外す（テレポート前など）。
+     * 乗客付きのプレイヤーはテレポートを拒否されることがあるため、先に降ろしておく。
+     * 次回の updateOne で付け直される。
+     */
+    public void detach(Player target) {
+        if (!passengerMode || target == null) return;
+        OverheadDisplay td = displays.get(target.getUniqueId());
+        if (td != null && td.isValid()) td.dismount();
     }
 
     /**
@@ -117,37 +467,169 @@ public class DisplayManager {
      *  - Overhead 全体が OFF → 全非表示
      *  - Overhead ON かつ「自分の頭上OFF」→ 自分の td だけ非表示、他は表示
      *  - Overhead ON かつ「自分の頭上ON」→ すべて表示
+     *  - いずれも viewRadius の外は非表示（追跡しない）
      */
     public void applyVisibility(Player viewer) {
         if (viewer == null || !viewer.isOnline()) return;
+        long t0 = stats.start();
+        diffViewer(viewer);
+        stats.stop(Stats.Stage.VISIBILITY, t0);
+        flushDemand();
+    }
+
+    private void diffViewer(Player viewer) {
         UUID vId = viewer.getUniqueId();
-        boolean seeOverhead = core.canSeeOverhead(viewer);
-        boolean seeSelf     = core.canSeeOwnOverhead(viewer); // 新ルール
+        int vs = vis.slot(vId);
+        Scratch sc = SCRATCH.get();
+
+        // 望ましい集合（近傍 × ポリシー）。ポリシーは viewer ごとに1回だけ評価
+        BitSet desired = sc.desired;
+        desired.clear();
+        if (core.canSeeOverhead(viewer)) {
+            boolean seeSelf = core.canSeeOwnOverhead(viewer);
+            sc.near.clear();
+            index.nearby(vId, sc.near);
+            for (UUID t : sc.near) {
+                if (!seeSelf && t.equals(vId)) continue; // 自分のだけ隠す
+                if (lastText.containsKey(t)) desired.set(vis.slot(t)); // 表示が無ければ setShown で用意を依頼
+            }
+        }
 
-        for (Map.Entry<UUID, TextDisplay> e : displays.entrySet()) {
-            TextDisplay td = e.getValue();
-            if (td == null || td.isDead()) continue;
+        // 差分だけ適用（写しとの差分。その間に他のスレッドが変えた分は setShown が弾く）
+        BitSet shown = sc.current;
+        vis.copyShown(vs, shown);
+        for (int t = shown.nextSetBit(0); t >= 0; t = shown.nextSetBit(t + 1)) {
+            if (!desired.get(t)) setShown(viewer, vs, t, false);
+        }
+        for (int t = desired.nextSetBit(0); t >= 0; t = desired.nextSetBit(t + 1)) {
+            if (!shown.get(t)) setShown(viewer, vs, t, true);
+        }
+    }
 
-            boolean show = seeOverhead;
-            if (show && e.getKey().equals(vId) && !seeSelf) {
-                show = false; // 自分のだけ隠す
-            }
+    /** 新規/再生成/移動した1体について、近傍の viewer に可視性を再適用 */
+    private void reapplyVisibilityFor(UUID ownerId) {
+        long t0 = stats.start();
+        diffTarget(ownerId);
+        stats.stop(Stats.Stage.VISIBILITY, t0);
+        flushDemand();
+    }
+
+    private void diffTarget(UUID ownerId) {
+        int ts = vis.slot(ownerId);
+        Scratch sc = SCRATCH.get();
+
+        BitSet desired = sc.desired;
+        desired.clear();
+        sc.near.clear();
+        index.nearby(ownerId, sc.near);
+        for (UUID v : sc.near) {
+            Player pv = Bukkit.getPlayer(v);
+            if (pv != null && wants(pv, ownerId)) desired.set(vis.slot(v));
+        }
 
-            if (show) viewer.showEntity(core, td);
-            else viewer.hideEntity(core, td);
+        BitSet visible = sc.current;
+        vis.copyVisible(ts, visible);
+        for (int v = visible.nextSetBit(0); v >= 0; v = visible.nextSetBit(v + 1)) {
+            if (desired.get(v)) continue;
+            UUID vId = vis.idAt(v);
+            Player pv = vId == null ? null : Bukkit.getPlayer(vId);
+            if (pv != null) setShown(pv, v, ts, false);
+            else vis.set(v, ts, false);
+        }
+        for (int v = desired.nextSetBit(0); v >= 0; v = desired.nextSetBit(v + 1)) {
+            if (visible.get(v)) continue;
+            UUID vId = vis.idAt(v);
+            Player pv = vId == null ? null : Bukkit.getPlayer(vId);
+            if (pv != null) setShown(pv, v, ts, true);
         }
+        if (!vis.hasViewers(ts) && displays.containsKey(ownerId)) toRelease.add(ownerId);
+    }
+
+    private boolean hasDisplay(UUID targetId) {
+        OverheadDisplay td = displays.get(targetId);
+        return td != null && td.isValid();
+    }
+
+    /** ポリシー（管理者トグル）と距離の両方を満たすか（表示の有無は問わない） */
+    private boolean wants(Player viewer, UUID targetId) {
+        if (!lastText.containsKey(targetId)) return false;
+        if (!core.canSeeOverhead(viewer)) return false;
+        if (targetId.equals(viewer.getUniqueId()) && !core.canSeeOwnOverhead(viewer)) return false; // 自分のだけ隠す
+        return index.isNear(viewer.getUniqueId(), targetId);
     }
 
-    /** 新規/再生成した1体について、全 viewer に可視性を再適用 */
-    private void reapplyVisibilityFor(UUID ownerId, TextDisplay td) {
-        for (Player v : Bukkit.getOnlinePlayers()) {
-            boolean show = core.canSeeOverhead(v);
-            if (show && ownerId.equals(v.getUniqueId()) && !core.canSeeOwnOverhead(v)) {
-                show = false;
+    /**
+     * 状態を記録して show/hide を1回だけ呼ぶ（viewer のスレッドで実行）。
+     * 同じ組を複数のスレッドが同時に判定しても、状態が変わった側だけが呼ぶ。
+     */
+    private void setShown(Player viewer, int viewerSlot, int targetSlot, boolean show) {
+        UUID targetId = vis.idAt(targetSlot);
+        if (targetId == null) return; // その間に退出した
+        OverheadDisplay td = displays.get(targetId);
+        if (td == null) {
+            if (show) toActivate.add(targetId); // 表示を用意してから activate が見せ直す
+            else vis.set(viewerSlot, targetSlot, false);
+            return;
+        }
+        synchronized (td) { // deactivate/unlinkDisplay と同じロック：外された表示には記録しない
+            boolean current = displays.get(targetId) == td;
+            if (show && (!current || !td.isValid())) {
+                toActivate.add(targetId);
+                return;
             }
-            if (show) v.showEntity(core, td);
-            else v.hideEntity(core, td);
+            if (!vis.set(viewerSlot, targetSlot, show) || !current) return;
+            if (!show && !vis.hasViewers(targetSlot)) toRelease.add(targetId);
+        }
+        if (!td.isValid()) return;
+        stats.count(show ? Stats.Counter.SHOW : Stats.Counter.HIDE);
+        if (show) runner.runFor(viewer, () -> td.show(viewer));
+        else runner.runFor(viewer, () -> td.hide(viewer));
+    }
+
+    /** 表示を作り直す/消す時に、その target の可視状態を破棄 */
+    private void forgetDisplay(UUID targetId) {
+        int ts = vis.slotIfPresent(targetId);
+        if (ts >= 0) vis.clearTarget(ts);
+    }
+
+    // --- 位置合わせ ---
+    private void position(Player target, OverheadDisplay td) {
+        if (smoother != null) {
+            Location at = smoother.next(target.getUniqueId(), textPos(target), runner.currentTick());
+            if (at == null) return; // クライアントの補間に任せる
+            stats.count(Stats.Counter.TELEPORT);
+            td.moveTo(at);
+            return;
+        }
+        if (!passengerMode) {
+            stats.count(Stats.Counter.TELEPORT);
+            td.moveTo(textPos(target));
+            return;
         }
+        if (td.isMountedOn(target)) return; // 乗車中はクライアント側で追従する
+        mount(target, td);
+    }
+
+    /** 乗車が外れた（ワールド移動・死亡・テレポート等）時だけ呼ばれる付け直し */
+    private void mount(Player target, OverheadDisplay td) {
+        stats.count(Stats.Counter.TELEPORT); // 乗せる前に足元へ移動する
+        if (!td.mount(target, mountTransformation(target))) {
+            td.moveTo(textPos(target)); // 乗せられない場合は従来どおりの位置に置く
+        }
+    }
+
+    /**
+     * 乗車位置（プレイヤーの高さ）から見た高さを Transformation にする。
+     * 平行移動は billboard（VERTICAL）で回した後の向きに掛かり、見る人のカメラに合わせて動いてしまうため、
+     * 対象の向き基準の左右・前後オフセットはここでは表せない（縦方向だけ使う）。
+     */
+    private Transformation mountTransformation(Player target) {
+        float up = (float) (target.getEyeHeight() + topUp - target.getHeight());
+        return new Transformation(
+                new Vector3f(0f, up, 0f),
+                new Quaternionf(),
+                new Vector3f(1f, 1f, 1f),
+                new Quaternionf());
     }
 
     // --- 位置計算 ---
@@ -171,102 +653,48 @@ public class DisplayManager {
         return new Vector(-fwd.getZ(), 0, fwd.getX()).normalize();
     }
 
-    private TextDisplay spawnDisplay(Player target) {
-        World w = target.getWorld();
-        Location pos = textPos(target);
-        return w.spawn(pos, TextDisplay.class, ent -> {
-            ent.setBillboard(Billboard.CENTER);
-            try { ent.setSeeThrough(false); } catch (Throwable ignore) {}
-            try { ent.setShadowed(true); } catch (Throwable ignore) {}
-            try { ent.setLineWidth(200); } catch (Throwable ignore) {}
-            try { ent.setDefaultBackground(false); } catch (Throwable ignore) {}
-            try { ent.setAlignment(TextDisplay.TextAlignment.CENTER); } catch (Throwable ignore) {}
-            setTextCompat(ent, "");
-            try { ent.setPersistent(false); } catch (Throwable ignore) {}
-            try { ent.setVisibleByDefault(false); } catch (Throwable ignore) {}
-        });
-    }
-
-    // setText(Component)/setText(String) のどちらでも動くように
-    private void setTextCompat(TextDisplay td, String plain) {
-        try {
-            var m = td.getClass().getMethod("setText", Component.class);
-            m.invoke(td, Component.text(plain));
-            return;
-        } catch (Throwable ignore) {}
-        try {
-            var m2 = td.getClass().getMethod("setText", String.class);
-            m2.invoke(td, plain);
-        } catch (Throwable ignore) {}
+    private OverheadDisplay spawnDisplay(Player target) {
+        stats.count(Stats.Counter.SPAWN);
+        Location at = textPos(target);
+        OverheadDisplay spawned = backend.spawn(target, at);
+        if (passengerMode) mount(target, spawned);
+        if (smoother != null) smoother.reset(target.getUniqueId(), at, runner.currentTick());
+        return spawned;
+    }
+
+    // setText(Component)/setText(String) のどちらでも動くように（解決は起動時に1回）
+    void setTextCompat(OverheadDisplay td, String plain) {
+        stats.count(Stats.Counter.SET_TEXT);
+        td.setText(plain);
     }
 
     // --- 表示テキスト ---
+    /** updateOne が使う描画（ベンチマーク用） */
+    EffectRenderer renderer() {
+        return renderer;
+    }
+
+    /** 行単位の一覧（互換用。updateOne は使わない） */
     public List<String> buildEffectLines(Player target) {
-        List<String> out = new ArrayList<>();
-        if (showPlayerName) out.add(target.getName());
+        return renderer.lines(target, target.getActivePotionEffects());
+    }
 
-        Collection<PotionEffect> effects = target.getActivePotionEffects();
-        if (effects.isEmpty()) {
-            out.add(language != null && language.startsWith("ja") ? "（効果なし）" : "(No Effects)");
-            return out;
-        }
-        for (PotionEffect eff : effects) {
-            String type = effectName(eff);
-            int lv = eff.getAmplifier() + 1;
-            int sec = Math.max(0, eff.getDuration() / 20);
-            String m = String.format("%d:%02d", sec / 60, sec % 60);
-            out.add(type + " " + roman(lv) + " " + m);
-        }
-        return out;
+    /** 頭上表示用に最後に描画したテキスト（未描画なら null/空）。変化しない限り同じインスタンス */
+    public String renderedText(UUID targetId) {
+        return lastText.get(targetId);
+    }
+
+    /** 文字列の Component（同じ文字列ならキャッシュを再利用） */
+    public Component component(String plain) {
+        return texts.component(plain);
     }
 
     public String effectName(PotionEffect eff) {
-        String raw = null;
-        try { raw = eff.getType().getKey().getKey(); } catch (Throwable ignore) {}
-        if (raw == null) { try { raw = eff.getType().getName(); } catch (Throwable ignore) {} }
-        if (raw == null) return "UNKNOWN";
-        String key = raw.toUpperCase(Locale.ROOT);
-
-        switch (key) {
-            case "SPEED": return ja("移動速度", "Speed");
-            case "SLOW": case "SLOWNESS": return ja("移動低下", "Slowness");
-            case "HASTE": case "FAST_DIGGING": return ja("採掘速度", "Haste");
-            case "MINING_FATIGUE": case "SLOW_DIGGING": return ja("採掘低下", "Mining Fatigue");
-            case "STRENGTH": case "INCREASE_DAMAGE": return ja("攻撃力上昇", "Strength");
-            case "INSTANT_HEALTH": case "HEAL": return ja("即時回復", "Instant Health");
-            case "INSTANT_DAMAGE": case "HARM": return ja("即時ダメージ", "Instant Damage");
-            case "JUMP_BOOST": case "JUMP": return ja("跳躍力上昇", "Jump Boost");
-            case "REGENERATION": return ja("再生", "Regeneration");
-            case "RESISTANCE": case "DAMAGE_RESISTANCE": return ja("耐性", "Resistance");
-            case "FIRE_RESISTANCE": return ja("耐火", "Fire Resistance");
-            case "WATER_BREATHING": return ja("水中呼吸", "Water Breathing");
-            case "INVISIBILITY": return ja("透明化", "Invisibility");
-            case "NIGHT_VISION": return ja("暗視", "Night Vision");
-            case "HUNGER": return ja("空腹", "Hunger");
-            case "WEAKNESS": return ja("弱体化", "Weakness");
-            case "POISON": return ja("毒", "Poison");
-            case "WITHER": return ja("衰弱", "Wither");
-            case "HEALTH_BOOST": return ja("体力増強", "Health Boost");
-            case "ABSORPTION": return ja("衝撃吸収", "Absorption");
-            case "SATURATION": return ja("満腹度回復", "Saturation");
-            case "GLOWING": return ja("発光", "Glowing");
-            case "LEVITATION": return ja("浮遊", "Levitation");
-            case "LUCK": return ja("幸運", "Luck");
-            case "UNLUCK": return ja("不運", "Unluck");
-            case "CONDUIT_POWER": return ja("コンジットパワー", "Conduit Power");
-            case "DOLPHINS_GRACE": return ja("イルカの好意", "Dolphin's Grace");
-            case "BAD_OMEN": return ja("不吉な予感", "Bad Omen");
-            case "HERO_OF_THE_VILLAGE": return ja("村の英雄", "Hero of the Village");
-            default: return raw;
-        }
-    }
-
-    private String ja(String ja, String en) {
-        return language != null && language.startsWith("ja") ? ja : en;
-    }
-
-    private String roman(int n) {
-        String[] r = {"","I","II","III","IV","V","VI","VII","VIII","IX","X"};
-        return (n >= 0 && n < r.length) ? r[n] : String.valueOf(n);
+        return renderer.effectName(eff);
+    }
+
+    /** 予算超過で次の tick へ持ち越している target 数 */
+    public int updateBacklog() {
+        return scheduler == null ? 0 : scheduler.backlog();
     }
 }
@@ -0,0 +1,241 @@
+package net.example.openeffect;
+
+import org.bukkit.event.entity.EntityPotionEffectEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * プレイヤーごとの効果の履歴（付与・変更・時間切れ・解除）。
+ * - 1件は long 2つ（時刻 + 詰めた値）。オンラインのプレイヤーは直近 perPlayer 件をリングバッファで持つ
+ * - 全件は HistoryLog（メモリマップの追記ログ）へ。古いセグメントから消えるので容量は上限付き
+ * - 効果の型・原因の名前は names.txt の番号で持つ（番号は追記のみで変わらない。行番号 = 番号で、0 行目は不明 "?"）
+ * - 検索（/openeffect history）は直近分ならリングから、足りなければログを専用スレッドで後ろから読む
+ * 記録はイベントのスレッド（Folia ではリージョンごと）から来るので、リングは個別に、ログと名前表は this で同期する。
+ */
+public class EffectHistory {
+
+    public enum Kind {
+        APPLY("付与"), CHANGE("変更"), EXPIRE("時間切れ"), REMOVE("解除");
+
+        public final String label;
+        Kind(String label) { this.label = label; }
+    }
+
+    /** 表示用に展開した1件 */
+    public record Entry(long time, Kind kind, String type, String cause, int amplifier, int duration) {}
+
+    // packed: duration(32) | type(10) | cause(10) | amplifier(8) | kind(2)
+    private static final int MAX_NAMES = 1 << 10;
+    private static final String NAMES_FILE = "names.txt";
+    private static final String UNKNOWN = "?";
+
+    static long pack(Kind kind, int type, int cause, int amplifier, int duration) {
+        return (duration & 0xFFFFFFFFL)
+                | (long) (type & 0x3FF) << 32
+                | (long) (cause & 0x3FF) << 42
+                | (long) (amplifier & 0xFF) << 52
+                | (long) kind.ordinal() << 60;
+    }
+
+    /** 直近の履歴（リングバッファ）。持ち主のスレッド以外（検索）からも読むので同期する */
+    private static final class Ring {
+        final long[] times, packed;
+        int head, size; // head: 次に書く位置
+
+        Ring(int capacity) {
+            times = new long[capacity];
+            packed = new long[capacity];
+        }
+
+        synchronized void add(long time, long p) {
+            times[head] = time;
+            packed[head] = p;
+            head = (head + 1) % times.length;
+            if (size < times.length) size++;
+        }
+
+        /** 新しい順に最大 limit 件 */
+        synchronized int copy(long[] outTimes, long[] outPacked, int limit) {
+            int n = Math.min(limit, size);
+            for (int i = 0; i < n; i++) {
+                int at = Math.floorMod(head - 1 - i, times.length);
+                outTimes[i] = times[at];
+                outPacked[i] = packed[at];
+            }
+            return n;
+        }
+    }
+
+    private final Plugin plugin;
+    private final int perPlayer;
+    private final HistoryLog log; // 開けなかった時は null（リングだけで動く）
+    private final Path namesFile;
+    private final Map<UUID, Ring> rings = new ConcurrentHashMap<>();
+    private final List<String> names = new ArrayList<>();      // 番号 -> 名前（0 は不明）
+    private final Map<String, Integer> ids = new HashMap<>();  // 名前 -> 番号
+    private final ExecutorService reader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "OpenEffect-History");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean logFailed; // 書き込み失敗は1回だけ報告
+
+    public EffectHistory(Plugin plugin, int perPlayer, int segmentRecords, int maxSegments) {
+        this.plugin = plugin;
+        this.perPlayer = Math.max(8, perPlayer);
+        Path dir = plugin.getDataFolder().toPath().resolve("history");
+        this.namesFile = dir.resolve(NAMES_FILE);
+        HistoryLog opened = null;
+        try {
+            opened = new HistoryLog(dir, segmentRecords, maxSegments);
+            List<String> saved = Files.exists(namesFile) ? Files.readAllLines(namesFile, StandardCharsets.UTF_8) : List.of();
+            if (!saved.isEmpty() && UNKNOWN.equals(saved.get(0))) {
+                names.addAll(saved);
+            } else {
+                // 新規、または 0 行目に "?" を書いていなかった旧形式（番号 n が n-1 行目）：先頭に足して書き直す
+                names.add(UNKNOWN);
+                names.addAll(saved);
+                writeNames();
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "効果履歴のログを開けませんでした（直近分のみ保持します）", e);
+            opened = null; // 名前表と揃わないログには書かない
+            names.clear();
+        }
+        this.log = opened;
+        if (names.isEmpty()) names.add(UNKNOWN);
+        for (int i = 0; i < names.size(); i++) ids.putIfAbsent(names.get(i), i);
+    }
+
+    // ===== 記録 =====
+    /** EntityPotionEffectEvent（MONITOR）から */
+    public void record(UUID player, EntityPotionEffectEvent e) {
+        EntityPotionEffectEvent.Action action = e.getAction();
+        Kind kind = switch (action) {
+            case ADDED -> Kind.APPLY;
+            case CHANGED -> Kind.CHANGE;
+            default -> e.getCause() == EntityPotionEffectEvent.Cause.EXPIRATION ? Kind.EXPIRE : Kind.REMOVE;
+        };
+        PotionEffect eff = kind == Kind.APPLY || kind == Kind.CHANGE ? e.getNewEffect() : e.getOldEffect();
+        PotionEffectType type = eff != null ? eff.getType() : e.getModifiedType();
+        int amplifier = eff == null ? 0 : eff.getAmplifier();
+        int duration = eff == null ? 0 : (eff.isInfinite() ? -1 : eff.getDuration());
+        record(player, System.currentTimeMillis(), kind, EffectRenderer.typeKey(type), e.getCause().name(), amplifier, duration);
+    }
+
+    void record(UUID player, long time, Kind kind, String type, String cause, int amplifier, int duration) {
+        long p;
+        synchronized (this) {
+            p = pack(kind, id(type), id(cause), amplifier, duration);
+            if (log != null && !logFailed) {
+                try {
+                    log.append(time, player, p);
+                } catch (IOException ex) {
+                    logFailed = true;
+                    plugin.getLogger().log(Level.WARNING, "効果履歴の書き込みに失敗しました（以降は直近分のみ保持します）", ex);
+                }
+            }
+        }
+        rings.computeIfAbsent(player, k -> new Ring(perPlayer)).add(time, p);
+    }
+
+    /** 名前の番号（初出なら names.txt に追記。上限を超えたら 0 = 不明） */
+    private int id(String name) {
+        if (name == null) return 0;
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        if (names.size() >= MAX_NAMES) return 0;
+        int next = names.size();
+        if (log != null) {
+            try {
+                Files.writeString(namesFile, name + "\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException ex) {
+                return 0; // 保存できない番号はログに書かない
+            }
+        }
+        names.add(name);
+        ids.put(name, next);
+        return next;
+    }
+
+    /** names.txt を丸ごと書き直す（一時ファイルに書いてから差し替える） */
+    private void writeNames() throws IOException {
+        Path tmp = namesFile.resolveSibling(NAMES_FILE + ".tmp");
+        Files.write(tmp, names, StandardCharsets.UTF_8);
+        Files.move(tmp, namesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** 退出：リングを捨てる（履歴はログに残る） */
+    public void forget(UUID player) {
+        rings.remove(player);
+    }
+
+    public void shutdown() {
+        reader.shutdownNow();
+        synchronized (this) {
+            if (log != null) log.close();
+        }
+    }
+
+    // ===== 検索 =====
+    /**
+     * player の履歴を新しい順に最大 limit 件。リングで足りれば呼び出しスレッドで、
+     * 足りなければ専用スレッドでログを読んでから done を呼ぶ（done のスレッドは不定）。
+     */
+    public void query(UUID player, int limit, Consumer<List<Entry>> done) {
+        long[] times = new long[limit], packed = new long[limit];
+        Ring ring = rings.get(player);
+        if (ring != null) {
+            int n = ring.copy(times, packed, limit);
+            if (n == limit || log == null) {
+                done.accept(decode(times, packed, n));
+                return;
+            }
+        } else if (log == null) {
+            done.accept(List.of());
+            return;
+        }
+        reader.execute(() -> {
+            int n = log.scan(player, times, packed, limit);
+            done.accept(decode(times, packed, n));
+        });
+    }
+
+    /** ログに保存されている件数 */
+    public long storedCount() {
+        return log == null ? 0 : log.size();
+    }
+
+    private synchronized List<Entry> decode(long[] times, long[] packed, int n) {
+        List<Entry> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            long p = packed[i];
+            out.add(new Entry(times[i],
+                    Kind.values()[(int) (p >>> 60) & 3],
+                    name((int) (p >>> 32) & 0x3FF),
+                    name((int) (p >>> 42) & 0x3FF),
+                    (int) (p >>> 52) & 0xFF,
+                    (int) p));
+        }
+        return out;
+    }
+
+    private String name(int id) {
+        return id < names.size() ? names.get(id) : UNKNOWN;
+    }
+}
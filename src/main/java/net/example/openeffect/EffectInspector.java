@@ -0,0 +1,220 @@
+package net.example.openeffect;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 効果一覧GUI（管理）の自動更新。
+ * - DisplayManager が target を描画し直した時（効果の変化・残り秒の切り替わり）に印を付け、
+ *   tick ごとにまとめて、その target を開いている viewer の画面だけを更新する
+ * - 各スロットに「何を表示しているか」のキーを覚えておき、キーが変わったスロットだけ setItem する
+ *   （ItemStack はキーが変わった時だけ作る。同じ target を複数人が見ていれば1回分を共有）
+ * - Folia では target の効果は target のスレッドで読み（Frame の組み立て）、
+ *   画面は viewer のスレッドで書き換える。同じ target を見ている viewer は1つの Frame を共有する
+ */
+public class EffectInspector {
+
+    static final int SIZE = 54;
+    static final int SLOT_HEAD = 4;
+    static final int SLOT_NONE = 22;
+    static final int SLOT_BACK = 45;
+    static final int SLOT_CLOSE = 53;
+    private static final int FIRST_EFFECT = 9; // 2段目から
+
+    // スロットのキー（equals で比較できるもの）
+    private static final Object FILLER = new Object();
+    private static final Object NONE = new Object();
+    private record HeadKey(int effects) {}
+    private record EffectKey(PotionEffectType type, int level, int seconds) {}
+
+    private static final class View {
+        final UUID target;
+        final Inventory inv;
+        final Object[] shown = new Object[SIZE]; // null = このクラスでは触らないスロット（ボタン）
+
+        View(UUID target, Inventory inv) {
+            this.target = target;
+            this.inv = inv;
+        }
+    }
+
+    /**
+     * ある瞬間の target の画面内容（キーと、必要になった分だけ作るアイテム）。
+     * target を読むのはコンストラクタだけ（頭アイテムもここで作る）なので、target のスレッドで作れば
+     * 後は複数の viewer のスレッドから使ってよい。
+     */
+    private final class Frame {
+        final Object[] keys = new Object[SIZE];
+        final PotionEffect[] effects = new PotionEffect[SIZE];
+        final ItemStack[] items = new ItemStack[SIZE];
+
+        Frame(Player target) {
+            for (int i = 0; i < SIZE; i++) if (managed(i)) keys[i] = FILLER;
+            Collection<PotionEffect> active = target.getActivePotionEffects();
+            keys[SLOT_HEAD] = new HeadKey(active.size());
+            items[SLOT_HEAD] = roster.head(target);
+            if (active.isEmpty()) {
+                keys[SLOT_NONE] = NONE;
+                return;
+            }
+            int slot = FIRST_EFFECT;
+            for (PotionEffect eff : active) {
+                while (slot < SIZE && !managed(slot)) slot++;
+                if (slot >= SIZE) break;
+                keys[slot] = new EffectKey(eff.getType(), eff.getAmplifier() + 1, Math.max(0, eff.getDuration() / 20));
+                effects[slot] = eff;
+                slot++;
+            }
+        }
+
+        synchronized ItemStack item(int slot) {
+            ItemStack it = items[slot];
+            if (it != null) return it;
+            Object key = keys[slot];
+            if (key == FILLER) it = plugin.filler();
+            else if (key == NONE) it = plugin.noEffectsItem();
+            else it = plugin.effectItem(effects[slot]);
+            items[slot] = it;
+            return it;
+        }
+    }
+
+    private final OpenEffectPlugin plugin;
+    private final TaskRunner runner;
+    private final AdminRoster roster;
+    private final Stats stats;
+
+    private final Map<UUID, View> views = new ConcurrentHashMap<>(); // viewer -> 画面
+    private final Set<UUID> changed = ConcurrentHashMap.newKeySet();  // この tick に描画し直した target
+    // tick 用の再利用バッファ（tick は1つのスレッドからだけ呼ばれる）
+    private final Set<UUID> batch = new HashSet<>();
+    private final Map<UUID, Frame> frames = new HashMap<>();
+
+    public EffectInspector(OpenEffectPlugin plugin, TaskRunner runner, AdminRoster roster, Stats stats) {
+        this.plugin = plugin;
+        this.runner = runner;
+        this.roster = roster;
+        this.stats = stats;
+    }
+
+    private static boolean managed(int slot) {
+        return slot == SLOT_HEAD || (slot >= FIRST_EFFECT && slot != SLOT_BACK && slot != SLOT_CLOSE);
+    }
+
+    /** index 番目の効果を置くスロット（入りきらなければ -1）。自動更新しない画面（他サーバーの target）用 */
+    static int effectSlot(int index) {
+        int slot = FIRST_EFFECT;
+        for (int i = 0; slot < SIZE; slot++) {
+            if (!managed(slot)) continue;
+            if (i++ == index) return slot;
+        }
+        return -1;
+    }
+
+    /** 開いた直後の画面（飾りとボタンは呼び出し側で配置済み）を登録し、中身を書き込む */
+    public void open(Player viewer, Player target, Inventory inv) {
+        View v = new View(target.getUniqueId(), inv);
+        for (int i = 0; i < SIZE; i++) if (managed(i)) v.shown[i] = FILLER;
+        if (runner.isRegionized()) {
+            views.put(viewer.getUniqueId(), v);
+            refresh(target); // target が別のリージョンにいることがあるので、中身は target のスレッドで読む
+            return;
+        }
+        apply(v, new Frame(target));
+        views.put(viewer.getUniqueId(), v);
+    }
+
+    public void close(UUID viewerId) {
+        views.remove(viewerId);
+    }
+
+    /** inv を閉じた時（別の画面に切り替えた直後の close で新しい画面を消さないよう、inv が一致する時だけ） */
+    public void close(UUID viewerId, Inventory inv) {
+        View v = views.get(viewerId);
+        if (v != null && v.inv == inv) views.remove(viewerId, v);
+    }
+
+    public void clear() {
+        views.clear();
+        changed.clear();
+    }
+
+    /** viewer が開いている画面の target（開いていなければ null） */
+    public UUID targetOf(UUID viewerId) {
+        View v = views.get(viewerId);
+        return v == null ? null : v.target;
+    }
+
+    /** 誰かが target の効果一覧を開いているか */
+    public boolean isWatched(UUID targetId) {
+        for (View v : views.values()) if (v.target.equals(targetId)) return true;
+        return false;
+    }
+
+    /** target の表示が変わった（どのスレッドからでも可。誰も見ていなければ何もしない） */
+    public void targetChanged(UUID targetId) {
+        if (!views.isEmpty()) changed.add(targetId);
+    }
+
+    /** 毎 tick：変化した target を見ている画面を差分更新する */
+    public void tick() {
+        if (changed.isEmpty()) return;
+        for (Iterator<UUID> it = changed.iterator(); it.hasNext(); ) {
+            batch.add(it.next());
+            it.remove();
+        }
+        if (runner.isRegionized()) {
+            for (UUID id : batch) {
+                Player target = Bukkit.getPlayer(id);
+                if (target != null && isWatched(id)) refresh(target);
+            }
+            batch.clear();
+            return;
+        }
+        for (Map.Entry<UUID, View> e : views.entrySet()) {
+            View v = e.getValue();
+            if (!batch.contains(v.target)) continue;
+            Player viewer = Bukkit.getPlayer(e.getKey());
+            Player target = Bukkit.getPlayer(v.target);
+            if (viewer == null || target == null) continue;
+            apply(v, frames.computeIfAbsent(v.target, id -> new Frame(target)));
+        }
+        batch.clear();
+        frames.clear();
+    }
+
+    /** Folia: target のスレッドで Frame を作り、target を開いている各 viewer のスレッドで書き込む */
+    private void refresh(Player target) {
+        UUID id = target.getUniqueId();
+        runner.runFor(target, () -> {
+            if (!target.isOnline()) return;
+            Frame f = new Frame(target);
+            for (Map.Entry<UUID, View> e : views.entrySet()) {
+                View v = e.getValue();
+                if (!v.target.equals(id)) continue;
+                Player viewer = Bukkit.getPlayer(e.getKey());
+                if (viewer == null) continue;
+                runner.runFor(viewer, () -> {
+                    if (views.get(viewer.getUniqueId()) == v) apply(v, f);
+                });
+            }
+        });
+    }
+
+    private void apply(View v, Frame f) {
+        for (int i = 0; i < SIZE; i++) {
+            Object key = f.keys[i];
+            if (key == null || key.equals(v.shown[i])) continue;
+            v.inv.setItem(i, f.item(i));
+            v.shown[i] = key;
+            stats.count(Stats.Counter.GUI_SLOT);
+        }
+    }
+}
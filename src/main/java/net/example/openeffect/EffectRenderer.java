@@ -0,0 +1,176 @@
+package net.example.openeffect;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 効果一覧テキストの描画。
+ * - 効果名は言語ごとの PotionEffectType → 表示名テーブルを起動時に1回だけ構築
+ * - 行の組み立ては再利用する StringBuilder に直接書き込む（String.format / List / join を使わない）
+ * - バッファはスレッドごと（Folia ではリージョンスレッドから並行に呼ばれる）
+ */
+public class EffectRenderer {
+
+    private static final String[] ROMAN = {"", "I", "II", "III", "IV", "V", "VI", "VII", "VIII", "IX", "X"};
+
+    // 効果キー（新旧どちらの名前でも）→ {ja, en}
+    private static final Map<String, String[]> NAMES = new HashMap<>();
+    static {
+        name("移動速度", "Speed", "SPEED");
+        name("移動低下", "Slowness", "SLOW", "SLOWNESS");
+        name("採掘速度", "Haste", "HASTE", "FAST_DIGGING");
+        name("採掘低下", "Mining Fatigue", "MINING_FATIGUE", "SLOW_DIGGING");
+        name("攻撃力上昇", "Strength", "STRENGTH", "INCREASE_DAMAGE");
+        name("即時回復", "Instant Health", "INSTANT_HEALTH", "HEAL");
+        name("即時ダメージ", "Instant Damage", "INSTANT_DAMAGE", "HARM");
+        name("跳躍力上昇", "Jump Boost", "JUMP_BOOST", "JUMP");
+        name("再生", "Regeneration", "REGENERATION");
+        name("耐性", "Resistance", "RESISTANCE", "DAMAGE_RESISTANCE");
+        name("耐火", "Fire Resistance", "FIRE_RESISTANCE");
+        name("水中呼吸", "Water Breathing", "WATER_BREATHING");
+        name("透明化", "Invisibility", "INVISIBILITY");
+        name("暗視", "Night Vision", "NIGHT_VISION");
+        name("空腹", "Hunger", "HUNGER");
+        name("弱体化", "Weakness", "WEAKNESS");
+        name("毒", "Poison", "POISON");
+        name("衰弱", "Wither", "WITHER");
+        name("体力増強", "Health Boost", "HEALTH_BOOST");
+        name("衝撃吸収", "Absorption", "ABSORPTION");
+        name("満腹度回復", "Saturation", "SATURATION");
+        name("発光", "Glowing", "GLOWING");
+        name("浮遊", "Levitation", "LEVITATION");
+        name("幸運", "Luck", "LUCK");
+        name("不運", "Unluck", "UNLUCK");
+        name("コンジットパワー", "Conduit Power", "CONDUIT_POWER");
+        name("イルカの好意", "Dolphin's Grace", "DOLPHINS_GRACE");
+        name("不吉な予感", "Bad Omen", "BAD_OMEN");
+        name("村の英雄", "Hero of the Village", "HERO_OF_THE_VILLAGE");
+    }
+
+    private static void name(String ja, String en, String... keys) {
+        String[] pair = {ja, en};
+        for (String k : keys) NAMES.put(k, pair);
+    }
+
+    private final boolean ja;
+    private final boolean showPlayerName;
+    private final String noEffects;
+
+    // この言語での表示名（起動時に Registry から構築、未知の型は初回に追加）
+    private final Map<PotionEffectType, String> nameTable = new ConcurrentHashMap<>();
+    // 描画バッファ（render の戻り値。同じスレッドの次の render まで有効）
+    private final ThreadLocal<StringBuilder> buf = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    public EffectRenderer(String language, boolean showPlayerName) {
+        this.ja = language != null && language.startsWith("ja");
+        this.showPlayerName = showPlayerName;
+        this.noEffects = ja ? "（効果なし）" : "(No Effects)";
+        try {
+            for (PotionEffectType type : Registry.EFFECT) nameTable.put(type, lookup(type));
+        } catch (Throwable ignore) {} // 古いAPIでは遅延構築のみ
+    }
+
+    public String effectName(PotionEffect eff) {
+        PotionEffectType type = eff.getType();
+        if (type == null) return "UNKNOWN";
+        String name = nameTable.get(type);
+        if (name == null) {
+            name = lookup(type);
+            nameTable.put(type, name);
+        }
+        return name;
+    }
+
+    /** 保存・送信用の型のキー（minecraft: は省く。取れなければ null） */
+    static String typeKey(PotionEffectType type) {
+        try {
+            NamespacedKey key = type.getKey();
+            return "minecraft".equals(key.getNamespace()) ? key.getKey() : key.asString();
+        } catch (Throwable ignore) {
+            return null;
+        }
+    }
+
+    /** typeKey の逆（このサーバーで知らない型は null） */
+    static PotionEffectType typeOf(String key) {
+        try {
+            NamespacedKey k = key.indexOf(':') >= 0 ? NamespacedKey.fromString(key) : NamespacedKey.minecraft(key);
+            return k == null ? null : Registry.EFFECT.get(k);
+        } catch (Throwable ignore) {
+            return null;
+        }
+    }
+
+    private String lookup(PotionEffectType type) {
+        String raw = null;
+        try { raw = type.getKey().getKey(); } catch (Throwable ignore) {}
+        if (raw == null) { try { raw = type.getName(); } catch (Throwable ignore) {} }
+        if (raw == null) return "UNKNOWN";
+        String[] pair = NAMES.get(raw.toUpperCase(Locale.ROOT));
+        return pair == null ? raw : pair[ja ? 0 : 1];
+    }
+
+    /**
+     * 行を sep で連結した描画結果を内部バッファに書いて返す。
+     * 戻り値は同じスレッドの次の render 呼び出しまで有効（保持する場合は toString すること）。
+     */
+    public CharSequence render(Player target, Collection<PotionEffect> effects, String sep) {
+        StringBuilder sb = buf.get();
+        sb.setLength(0);
+        if (showPlayerName) sb.append(target.getName()).append(sep);
+        if (effects.isEmpty()) {
+            sb.append(noEffects);
+            return sb;
+        }
+        boolean first = true;
+        for (PotionEffect eff : effects) {
+            if (!first) sb.append(sep);
+            first = false;
+            appendLine(sb, eff);
+        }
+        return sb;
+    }
+
+    /** 行単位の描画（互換用。毎回リストを生成する） */
+    public List<String> lines(Player target, Collection<PotionEffect> effects) {
+        List<String> out = new ArrayList<>(effects.size() + 1);
+        if (showPlayerName) out.add(target.getName());
+        if (effects.isEmpty()) {
+            out.add(noEffects);
+            return out;
+        }
+        StringBuilder sb = new StringBuilder(32);
+        for (PotionEffect eff : effects) {
+            sb.setLength(0);
+            appendLine(sb, eff);
+            out.add(sb.toString());
+        }
+        return out;
+    }
+
+    // 「名前 レベル m:ss」
+    private void appendLine(StringBuilder sb, PotionEffect eff) {
+        sb.append(effectName(eff)).append(' ');
+        appendRoman(sb, eff.getAmplifier() + 1);
+        sb.append(' ');
+        appendTime(sb, Math.max(0, eff.getDuration() / 20));
+    }
+
+    static void appendRoman(StringBuilder sb, int n) {
+        if (n >= 0 && n < ROMAN.length) sb.append(ROMAN[n]);
+        else sb.append(n);
+    }
+
+    static void appendTime(StringBuilder sb, int sec) {
+        int s = sec % 60;
+        sb.append(sec / 60).append(':');
+        if (s < 10) sb.append('0');
+        sb.append(s);
+    }
+}
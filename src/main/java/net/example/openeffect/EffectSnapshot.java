@@ -0,0 +1,42 @@
+package net.example.openeffect;
+
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * あるプレイヤーの効果の不変スナップショット（EffectSnapshotService が配る）。
+ * - version は効果が変わった時（付与・解除・レベル変更・掛け直し）にだけ進む。残り時間が減るだけでは変わらない
+ * - effects の duration は capturedTick 時点の残り。今の残りは {@link #remainingTicks} で求める
+ * - online が false なら退出済み（effects は空）
+ *
+ * @param player      プレイヤー
+ * @param version     変更の番号（全プレイヤー共通で単調増加。大きいほど新しい）
+ * @param capturedTick 読み取った時の tick（TaskRunner#currentTick と同じ数え方）
+ * @param online      オンラインか
+ * @param effects     効果（不変リスト。PotionEffect 自体も不変）
+ */
+public record EffectSnapshot(UUID player, long version, long capturedTick, boolean online, List<PotionEffect> effects) {
+
+    public EffectSnapshot {
+        effects = List.copyOf(effects);
+    }
+
+    /** effect の nowTick 時点の残り tick（無期限なら PotionEffect.INFINITE_DURATION） */
+    public int remainingTicks(PotionEffect effect, long nowTick) {
+        if (effect.isInfinite()) return PotionEffect.INFINITE_DURATION;
+        return (int) Math.max(0, effect.getDuration() - (nowTick - capturedTick));
+    }
+
+    /** type の効果（無ければ null） */
+    public PotionEffect get(PotionEffectType type) {
+        for (PotionEffect e : effects) if (e.getType().equals(type)) return e;
+        return null;
+    }
+
+    public boolean has(PotionEffectType type) {
+        return get(type) != null;
+    }
+}
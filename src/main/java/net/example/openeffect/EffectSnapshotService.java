@@ -0,0 +1,48 @@
+package net.example.openeffect;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * 他プラグイン向けの効果スナップショット API（Bukkit の ServicesManager に登録）。
+ * <pre>
+ * EffectSnapshotService svc = Bukkit.getServicesManager().load(EffectSnapshotService.class);
+ * </pre>
+ * 毎 tick 全員の getActivePotionEffects() をコピーする代わりに、
+ * - version（全体なら {@link #version()}）を見て、変わった時だけ {@link #changedSince} で取り直す
+ * - {@link #subscribe} で変化の通知を受ける
+ * のどちらかで使う。スナップショットは不変なので、どのスレッドで保持・参照してもよい。
+ */
+public interface EffectSnapshotService {
+
+    /** 変化の通知先 */
+    @FunctionalInterface
+    interface Listener {
+        /**
+         * player の効果が変わった（退出時は online=false のスナップショット）。
+         * Paper ではメインスレッド、Folia ではそのプレイヤーのリージョンスレッドから呼ばれる。重い処理はしないこと。
+         */
+        void onChange(EffectSnapshot snapshot);
+    }
+
+    /** 購読の解除用 */
+    interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /** オンラインのプレイヤーの最新のスナップショット（知らない・オフラインなら null） */
+    EffectSnapshot snapshot(UUID player);
+
+    /** 全体の最新の version（どれかのプレイヤーの効果が変わると進む） */
+    long version();
+
+    /**
+     * version より新しいスナップショット。退出したプレイヤーは online=false のものが入る
+     * （退出から10分経つと含まれなくなるので、それより長く間を空けて呼ぶ場合は退出を取りこぼす）。
+     * {@link #version()} を読んでから呼べば、その version までの変化は必ず含まれる。
+     */
+    Collection<EffectSnapshot> changedSince(long version);
+
+    Subscription subscribe(Listener listener);
+}
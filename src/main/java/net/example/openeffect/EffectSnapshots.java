@@ -0,0 +1,138 @@
+package net.example.openeffect;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.potion.PotionEffect;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * EffectSnapshotService の実装。
+ * - 効果イベントで印を付けたプレイヤーだけ、次の tick に1回読み直す（読むのはそのプレイヤーのスレッド）
+ * - 前回と同じ内容（型・レベル・表示フラグが同じで、終了 tick のずれが REAPPLY_SLACK 以内）なら
+ *   前回のスナップショットをそのまま使い、version も通知も出さない
+ * - 変わった時だけ新しいスナップショットに差し替えて購読者へ通知する
+ * - version は「スナップショットを置いてから」進める（version() を読んでから changedSince を呼べば、
+ *   その version までのものは必ず見える）。採番と差し替えは this で同期する（Folia では複数スレッドから来る）
+ * - 退出したプレイヤーは online=false のスナップショットとして TOMBSTONE_TICKS の間残す（ポーリングで退出を知るため）
+ */
+public class EffectSnapshots implements EffectSnapshotService {
+
+    private static final int REAPPLY_SLACK = 2;
+    private static final long TOMBSTONE_TICKS = 20L * 60 * 10; // 10分
+    private static final int SWEEP_INTERVAL = 20 * 60;         // 退出分の掃除（tick）
+
+    private final Plugin plugin;
+    private final TaskRunner runner;
+    private volatile long version; // 公開済みの最新（書き込みは this で同期）
+    private int sweepCountdown = SWEEP_INTERVAL;
+    private final Map<UUID, EffectSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public EffectSnapshots(Plugin plugin, TaskRunner runner) {
+        this.plugin = plugin;
+        this.runner = runner;
+    }
+
+    // ===== 記録側（OpenEffectPlugin から） =====
+    public void markDirty(UUID id) {
+        dirty.add(id);
+    }
+
+    /** 毎 tick（global のタイマー）：印の付いたプレイヤーを各自のスレッドで読み直す */
+    public void tick() {
+        if (--sweepCountdown <= 0) {
+            sweepCountdown = SWEEP_INTERVAL;
+            long expired = runner.currentTick() - TOMBSTONE_TICKS;
+            snapshots.values().removeIf(s -> !s.online() && s.capturedTick() < expired);
+        }
+        if (dirty.isEmpty()) return;
+        for (Iterator<UUID> it = dirty.iterator(); it.hasNext(); ) {
+            UUID id = it.next();
+            it.remove();
+            Player p = Bukkit.getPlayer(id);
+            if (p != null) runner.runFor(p, () -> capture(p));
+        }
+    }
+
+    public void playerLeft(UUID id) {
+        dirty.remove(id);
+        EffectSnapshot prev = snapshots.get(id);
+        if (prev == null || !prev.online()) return;
+        publish(store(id, runner.currentTick(), false, List.of()));
+    }
+
+    public void clear() {
+        snapshots.clear();
+        dirty.clear();
+        listeners.clear();
+    }
+
+    private void capture(Player p) {
+        if (!p.isOnline()) return;
+        long tick = runner.currentTick();
+        Collection<PotionEffect> now = p.getActivePotionEffects();
+        EffectSnapshot prev = snapshots.get(p.getUniqueId());
+        if (prev != null && prev.online() && same(prev, now, tick)) return;
+        publish(store(p.getUniqueId(), tick, true, new ArrayList<>(now)));
+    }
+
+    /** 次の version でスナップショットを置き、置いた後で version を公開する */
+    private synchronized EffectSnapshot store(UUID id, long tick, boolean online, List<PotionEffect> effects) {
+        EffectSnapshot s = new EffectSnapshot(id, version + 1, tick, online, effects);
+        snapshots.put(id, s);
+        version = s.version();
+        return s;
+    }
+
+    private static boolean same(EffectSnapshot prev, Collection<PotionEffect> now, long tick) {
+        if (prev.effects().size() != now.size()) return false;
+        for (PotionEffect e : now) {
+            PotionEffect o = prev.get(e.getType());
+            if (o == null || o.getAmplifier() != e.getAmplifier() || o.isInfinite() != e.isInfinite()) return false;
+            if (o.isAmbient() != e.isAmbient() || o.hasParticles() != e.hasParticles() || o.hasIcon() != e.hasIcon()) return false;
+            if (!e.isInfinite() && Math.abs(prev.remainingTicks(o, tick) - e.getDuration()) > REAPPLY_SLACK) return false;
+        }
+        return true;
+    }
+
+    private void publish(EffectSnapshot s) {
+        for (Listener l : listeners) {
+            try {
+                l.onChange(s);
+            } catch (Throwable t) {
+                plugin.getLogger().log(Level.WARNING, "EffectSnapshotService の購読者でエラー", t);
+            }
+        }
+    }
+
+    // ===== API =====
+    @Override
+    public EffectSnapshot snapshot(UUID player) {
+        EffectSnapshot s = snapshots.get(player);
+        return s == null || !s.online() ? null : s;
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public Collection<EffectSnapshot> changedSince(long since) {
+        List<EffectSnapshot> out = new ArrayList<>();
+        for (EffectSnapshot s : snapshots.values()) if (s.version() > since) out.add(s);
+        return out;
+    }
+
+    @Override
+    public Subscription subscribe(Listener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+        return () -> listeners.remove(listener);
+    }
+}
@@ -0,0 +1,121 @@
+package net.example.openeffect;
+
+import org.bukkit.potion.PotionEffect;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 効果の変化を追跡し、再描画が必要な target だけを保持する。
+ * - EntityPotionEffectEvent / Join / Respawn などのイベントで markDirty（どのスレッドからでも可）
+ * - 残り時間表示（m:ss）は「次に秒が変わる tick」「効果が切れる tick」に予約
+ *   - 単一スレッド: CountdownWheel でまとめて取り出す（drain）
+ *   - Folia: target ごとのタスクが自分の予約だけを確認する（takeIfDue）
+ * - 1tick の処理量は「変化のあった target 数」に比例（オンライン人数に比例しない）
+ */
+public class EffectTracker {
+
+    private static final int TICKS_PER_SECOND = 20;
+
+    private final boolean perTarget;
+
+    // 次の tick で再描画する target（イベント起点）
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    // 残り時間の桁が変わる tick の予約（単一スレッド用）
+    private final CountdownWheel wheel = new CountdownWheel();
+    // 同上（Folia 用: target -> 期限 tick）
+    private final Map<UUID, Long> due = new ConcurrentHashMap<>();
+
+    // drain 用の再利用バッファ
+    private final List<UUID> drainBuf = new ArrayList<>();
+
+    /** @param perTarget true なら target ごとのタスクから takeIfDue で確認する（Folia） */
+    public EffectTracker(boolean perTarget) {
+        this.perTarget = perTarget;
+    }
+
+    public void markDirty(UUID targetId) {
+        if (targetId != null) dirty.add(targetId);
+    }
+
+    public void forget(UUID targetId) {
+        dirty.remove(targetId);
+        if (perTarget) {
+            due.remove(targetId);
+        } else {
+            synchronized (wheel) { wheel.cancel(targetId); }
+        }
+    }
+
+    public void clear() {
+        dirty.clear();
+        due.clear();
+        synchronized (wheel) { wheel.clear(); }
+    }
+
+    /** 今回処理すべき target（dirty ∪ 期限を迎えた予約）を取り出す。戻り値は次回呼び出しまで有効 */
+    public List<UUID> drain(long now) {
+        drainBuf.clear();
+        for (Iterator<UUID> it = dirty.iterator(); it.hasNext(); ) {
+            drainBuf.add(it.next());
+            it.remove();
+        }
+        synchronized (wheel) {
+            // dirty の target は今回描画して予約し直すので、古い予約は取り消して1回だけ処理する
+            for (int i = 0, n = drainBuf.size(); i < n; i++) wheel.cancel(drainBuf.get(i));
+            wheel.advance(now, drainBuf);
+        }
+        return drainBuf;
+    }
+
+    /** target 自身のスレッドから：再描画が必要なら true（印/予約は消費される） */
+    public boolean takeIfDue(UUID targetId, long now) {
+        boolean fire = dirty.remove(targetId);
+        Long at = due.get(targetId);
+        if (at != null && at <= now) {
+            due.remove(targetId, at);
+            fire = true;
+        }
+        return fire;
+    }
+
+    /** 描画した効果一覧を元に、次に表示が変わる tick を予約する */
+    public void noteRendered(UUID targetId, Collection<PotionEffect> effects, long now) {
+        long next = nextChangeIn(effects);
+        if (perTarget) {
+            if (next < 0) due.remove(targetId);
+            else due.put(targetId, now + next);
+            return;
+        }
+        synchronized (wheel) {
+            if (next < 0) wheel.cancel(targetId); // 無限効果のみ/効果なし → 時間では変化しない
+            else wheel.schedule(targetId, now + next);
+        }
+    }
+
+    public int dirtyCount() {
+        return dirty.size();
+    }
+
+    public int scheduledCount() {
+        if (perTarget) return due.size();
+        synchronized (wheel) { return wheel.size(); }
+    }
+
+    /**
+     * 表示中の秒（duration / 20）が次に変わるまで、または効果が切れるまでの tick 数。
+     * 時間で変化しない場合は -1。
+     */
+    static long nextChangeIn(Collection<PotionEffect> effects) {
+        long best = -1;
+        for (PotionEffect eff : effects) {
+            if (eff.isInfinite()) continue;
+            int d = Math.max(0, eff.getDuration());
+            long secondBoundary = d % TICKS_PER_SECOND + 1; // d が 20k → 20k-1 になる瞬間
+            long expiry = d + 1L;                           // 効果が外れる瞬間
+            long t = Math.min(secondBoundary, expiry);
+            if (best < 0 || t < best) best = t;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,178 @@
+package net.example.openeffect;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Display.Billboard;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.TextDisplay;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.util.Transformation;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * サーバー上に TextDisplay を実体として生成する従来方式。
+ * 可視性は Player#showEntity/hideEntity（visibleByDefault=false）で制御する。
+ * Folia では同期テレポートが使えないため teleportAsync、削除は所有スレッドへ回す。
+ * teleportTicks > 0（positionMode: interpolate）なら teleportDuration を設定し、移動をクライアント側で補間させる。
+ *
+ * 退出・ワールド移動で要らなくなった表示は、ワールドごとに最大 poolSize 体まで消さずに取っておき、
+ * 次の spawn で再利用する（テキストを空にして降ろし、見せていた viewer 全員から隠した状態で待機）。
+ * 人の出入りが多いロビーでエンティティ ID とトラッカー登録が作り直され続けるのを防ぐ。
+ * Folia ではエンティティを所属リージョンの外から動かせないため再利用しない。
+ */
+public class EntityDisplayBackend implements DisplayBackend {
+
+    private final Plugin plugin;
+    private final TaskRunner runner;
+    private final Billboard billboard;
+    private final TextSetter texts;
+    private final int teleportTicks;
+
+    // worldUID -> 再利用待ちの表示
+    private final int poolSize;
+    private final Map<UUID, ArrayDeque<Handle>> pool = new HashMap<>();
+
+    public EntityDisplayBackend(Plugin plugin, TaskRunner runner, Billboard billboard, TextSetter texts,
+                                int teleportTicks, int poolSize) {
+        this.plugin = plugin;
+        this.runner = runner;
+        this.billboard = billboard;
+        this.texts = texts;
+        this.teleportTicks = teleportTicks;
+        this.poolSize = runner.isRegionized() ? 0 : Math.max(0, poolSize);
+    }
+
+    @Override
+    public OverheadDisplay spawn(Player target, Location at) {
+        Handle pooled = takePooled(at);
+        if (pooled != null) return pooled;
+
+        TextDisplay td = at.getWorld().spawn(at, TextDisplay.class, ent -> {
+            ent.setBillboard(billboard);
+            try { ent.setSeeThrough(false); } catch (Throwable ignore) {}
+            try { ent.setShadowed(true); } catch (Throwable ignore) {}
+            try { ent.setLineWidth(200); } catch (Throwable ignore) {}
+            try { ent.setDefaultBackground(false); } catch (Throwable ignore) {}
+            try { ent.setAlignment(TextDisplay.TextAlignment.CENTER); } catch (Throwable ignore) {}
+            if (teleportTicks > 0) {
+                try { ent.setTeleportDuration(teleportTicks); } catch (Throwable ignore) {} // 1.20.2+
+            }
+            texts.apply(ent, "");
+            try { ent.setPersistent(false); } catch (Throwable ignore) {}
+            try { ent.setVisibleByDefault(false); } catch (Throwable ignore) {}
+        });
+        return new Handle(td);
+    }
+
+    private Handle takePooled(Location at) {
+        if (poolSize == 0) return null;
+        synchronized (pool) {
+            ArrayDeque<Handle> q = pool.get(at.getWorld().getUID());
+            while (q != null && !q.isEmpty()) {
+                Handle h = q.poll();
+                if (!h.td.isValid()) continue; // 待機中にチャンクごと消えた（非永続）
+                h.td.teleport(at);
+                return h;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void release(OverheadDisplay display) {
+        if (poolSize == 0 || !(display instanceof Handle h) || !h.td.isValid()) {
+            display.remove();
+            return;
+        }
+        h.reset();
+        synchronized (pool) {
+            ArrayDeque<Handle> q = pool.computeIfAbsent(h.td.getWorld().getUID(), k -> new ArrayDeque<>());
+            if (q.size() < poolSize) {
+                q.add(h);
+                return;
+            }
+        }
+        h.remove();
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (pool) {
+            for (ArrayDeque<Handle> q : pool.values()) for (Handle h : q) h.remove();
+            pool.clear();
+        }
+    }
+
+    private final class Handle implements OverheadDisplay {
+        private final TextDisplay td;
+        // show 済みの viewer（返却時に隠すため。Folia では viewer のスレッドから更新される）
+        private final Set<UUID> shownTo = ConcurrentHashMap.newKeySet();
+
+        Handle(TextDisplay td) { this.td = td; }
+
+        @Override public boolean isValid() { return td.isValid(); } // プールと同じ判定（チャンクごと消えた表示も無効）
+
+        @Override public boolean isIn(World world) { return td.getWorld().equals(world); }
+
+        /** 再利用待ちに戻す前の初期化（生成直後と同じ「誰にも見えない・空テキスト」にする） */
+        void reset() {
+            dismount();
+            texts.apply(td, "");
+            for (UUID id : shownTo) {
+                Player viewer = Bukkit.getPlayer(id);
+                if (viewer != null) viewer.hideEntity(plugin, td);
+            }
+            shownTo.clear();
+        }
+
+        @Override
+        public void remove() {
+            if (td.isDead()) return;
+            try {
+                runner.runFor(td, () -> { if (!td.isDead()) td.remove(); });
+            } catch (Throwable ignore) {} // 無効化中は予約できない（非永続なので停止時に消える）
+        }
+
+        @Override public void setText(String plain) { texts.apply(td, plain); }
+
+        @Override
+        public void moveTo(Location at) {
+            if (runner.isRegionized()) td.teleportAsync(at);
+            else td.teleport(at);
+        }
+
+        @Override public boolean isMountedOn(Player target) { return target.equals(td.getVehicle()); }
+
+        @Override
+        public boolean mount(Player target, Transformation offset) {
+            if (td.isInsideVehicle()) td.leaveVehicle();
+            try { td.setTransformation(offset); } catch (Throwable ignore) {}
+            if (runner.isRegionized()) {
+                // 移動完了後に乗せる（結果は次回の isMountedOn で確認される）
+                td.teleportAsync(target.getLocation()).thenAccept(ok -> {
+                    if (ok) runner.runFor(target, () -> target.addPassenger(td));
+                });
+                return true;
+            }
+            td.teleport(target.getLocation());
+            return target.addPassenger(td);
+        }
+
+        @Override public void dismount() { if (td.isInsideVehicle()) td.leaveVehicle(); }
+
+        @Override
+        public void show(Player viewer) {
+            viewer.showEntity(plugin, td);
+            shownTo.add(viewer.getUniqueId());
+        }
+
+        @Override
+        public void hide(Player viewer) {
+            viewer.hideEntity(plugin, td);
+            shownTo.remove(viewer.getUniqueId());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package net.example.openeffect;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Folia 用。エンティティの処理はそのエンティティのスケジューラ（所属リージョンのスレッド）で行う。
+ * tick 数はリージョンごとに異なるため、グローバルリージョンで数えた値を使う。
+ */
+public class FoliaTaskRunner implements TaskRunner {
+
+    private final Plugin plugin;
+    private final AtomicLong ticks = new AtomicLong();
+
+    public FoliaTaskRunner(Plugin plugin) {
+        this.plugin = plugin;
+        Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, t -> ticks.incrementAndGet(), 1, 1);
+    }
+
+    @Override public boolean isRegionized() { return true; }
+
+    @Override public long currentTick() { return ticks.get(); }
+
+    @Override
+    public void runGlobalTimer(Runnable task, long delay, long period) {
+        Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, t -> task.run(), Math.max(1, delay), period);
+    }
+
+    @Override
+    public void runGlobalLater(Runnable task, long delay) {
+        Bukkit.getGlobalRegionScheduler().runDelayed(plugin, t -> task.run(), Math.max(1, delay));
+    }
+
+    @Override
+    public void runFor(Entity entity, Runnable task) {
+        if (Bukkit.isOwnedByCurrentRegion(entity)) task.run();
+        else entity.getScheduler().run(plugin, t -> task.run(), null);
+    }
+
+    @Override
+    public void runLaterFor(Entity entity, Runnable task, long delay) {
+        entity.getScheduler().runDelayed(plugin, t -> task.run(), null, Math.max(1, delay));
+    }
+
+    @Override
+    public void runTimerFor(Entity entity, Runnable task, long delay, long period) {
+        entity.getScheduler().runAtFixedRate(plugin, t -> task.run(), null, Math.max(1, delay), period);
+    }
+
+    @Override
+    public void cancelAll() {
+        Bukkit.getGlobalRegionScheduler().cancelTasks(plugin);
+        Bukkit.getAsyncScheduler().cancelTasks(plugin);
+    }
+}
@@ -0,0 +1,131 @@
+package net.example.openeffect;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+import java.util.UUID;
+
+/**
+ * OpenEffect の GUI であることを示す InventoryHolder。
+ * - クリックはタイトル文字列ではなく holder の型で判定する（他プラグインの画面・同名のプレイヤーと混ざらない）
+ * - 画面の種類ごとに「スロット → 処理」の表（Table）を起動時に1回だけ作り、クリック時は配列を引くだけ
+ * - ページ番号や表示中の target など画面ごとの状態は holder 自身が持つ
+ */
+public final class GuiHolder implements InventoryHolder {
+
+    @FunctionalInterface
+    public interface ClickHandler {
+        void onClick(Player viewer, GuiHolder gui, InventoryClickEvent e);
+    }
+
+    @FunctionalInterface
+    public interface CloseHandler {
+        void onClose(Player viewer, GuiHolder gui);
+    }
+
+    /** 画面の種類ごとのクリック処理表 */
+    public static final class Table {
+        private final ClickHandler[] slots;
+        private ClickHandler fallback;  // 表に無いスロット（一覧の頭など）
+        private String permission;      // クリック時にも確認する権限（二重防御）
+        private CloseHandler onClose;
+
+        public Table(int size) {
+            this.slots = new ClickHandler[size];
+        }
+
+        public Table on(int slot, ClickHandler handler) {
+            slots[slot] = handler;
+            return this;
+        }
+
+        public Table otherwise(ClickHandler handler) {
+            this.fallback = handler;
+            return this;
+        }
+
+        public Table requires(String permission) {
+            this.permission = permission;
+            return this;
+        }
+
+        public Table onClose(CloseHandler onClose) {
+            this.onClose = onClose;
+            return this;
+        }
+
+        int size() {
+            return slots.length;
+        }
+    }
+
+    private final Table table;
+    private final int page;        // 一覧: 表示中のページ / 効果一覧: 戻り先のページ
+    private final UUID target;     // 効果一覧: 表示中の target
+    private final UUID[] targets;  // 一覧: スロットごとの target（頭のスロットのみ）
+    private Inventory inventory;
+
+    private GuiHolder(Table table, int page, UUID target) {
+        this.table = table;
+        this.page = page;
+        this.target = target;
+        this.targets = new UUID[table.size()];
+    }
+
+    /** table の画面を作る（中身は呼び出し側で配置） */
+    public static GuiHolder create(Table table, String title, int page, UUID target) {
+        GuiHolder gui = new GuiHolder(table, page, target);
+        gui.inventory = Bukkit.createInventory(gui, table.size(), title);
+        return gui;
+    }
+
+    /** inv が OpenEffect の GUI なら holder、そうでなければ null */
+    public static GuiHolder of(Inventory inv) {
+        if (inv == null) return null;
+        InventoryHolder h;
+        try {
+            h = inv.getHolder(false); // Paper: ブロックの holder のスナップショットを作らない
+        } catch (Throwable ignore) {
+            h = inv.getHolder();
+        }
+        return h instanceof GuiHolder g ? g : null;
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    public int page() {
+        return page;
+    }
+
+    public UUID target() {
+        return target;
+    }
+
+    public UUID targetAt(int slot) {
+        return slot >= 0 && slot < targets.length ? targets[slot] : null;
+    }
+
+    public void setTargetAt(int slot, UUID id) {
+        targets[slot] = id;
+    }
+
+    /** 上段（この GUI）のスロットなら表の処理を呼ぶ。キャンセルは呼び出し側で行う */
+    void click(Player viewer, InventoryClickEvent e) {
+        int slot = e.getRawSlot();
+        if (slot < 0 || slot >= table.slots.length) return;
+        if (table.permission != null && !viewer.hasPermission(table.permission)) return;
+        ClickHandler h = table.slots[slot];
+        if (h == null) h = table.fallback;
+        if (h != null) h.onClick(viewer, this, e);
+    }
+
+    void closed(Player viewer) {
+        if (table.onClose != null) table.onClose.onClose(viewer, this);
+    }
+}
@@ -0,0 +1,213 @@
+package net.example.openeffect;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * 効果履歴の追記ログ（メモリマップした固定長セグメントの列）。
+ * <pre>
+ * seg-000000001.log : header(2048) record(32) * capacity
+ *   header: magic(4) version(4) capacity(4) count(4) ... bloom(1024, offset 1024)
+ *   record: time(8) uuidHi(8) uuidLo(8) packed(8)     packed は EffectHistory が詰めた値
+ * </pre>
+ * - 追記はマップ済みの領域への書き込みだけ（システムコールなし）。満杯になったら次のセグメントへ移り、
+ *   maxSegments を超えた古いものから消す
+ * - セグメントごとにプレイヤーの Bloom フィルタをヘッダに持ち、検索では居ないセグメントを読まずに飛ばす
+ * - 検索は新しい順に後ろから読むだけで、ヒープには結果の配列しか作らない
+ * - 件数（count）はレコードを書いてから更新するので、途中で落ちても書きかけのレコードは読まれない
+ * append はどのスレッドからでも可（this で同期）。scan は同期の外で読む（確定済みの件数までしか読まない）。
+ */
+public class HistoryLog implements AutoCloseable {
+
+    static final int RECORD = 32;
+    private static final int HEADER = 2048;
+    private static final int MAGIC = 0x4F454831; // "OEH1"
+    private static final int VERSION = 1;
+    private static final int OFF_CAPACITY = 8, OFF_COUNT = 12, OFF_BLOOM = 1024;
+    private static final int BLOOM_BITS = 8192; // 2000人/セグメントで誤検出 15% 程度
+
+    private static final class Segment {
+        final Path file;
+        final MappedByteBuffer map;
+        final int capacity;
+        volatile int count;
+
+        Segment(Path file, MappedByteBuffer map, int capacity, int count) {
+            this.file = file;
+            this.map = map;
+            this.capacity = capacity;
+            this.count = count;
+        }
+    }
+
+    private final Path dir;
+    private final int capacity;
+    private final int maxSegments;
+    private volatile List<Segment> segments; // 古い順（差し替えで更新）
+    private long nextIndex;
+
+    public HistoryLog(Path dir, int segmentRecords, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.capacity = Math.max(1024, Math.min(1 << 24, segmentRecords));
+        this.maxSegments = Math.max(2, maxSegments);
+        Files.createDirectories(dir);
+
+        List<Segment> open = new ArrayList<>();
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(p -> p.getFileName().toString().matches("seg-\\d+\\.log")).sorted().toList();
+        }
+        for (Path f : files) {
+            Segment seg = map(f, -1);
+            if (seg != null) open.add(seg);
+            nextIndex = Math.max(nextIndex, index(f) + 1);
+        }
+        if (open.isEmpty() || full(open.get(open.size() - 1))) open.add(create());
+        segments = List.copyOf(open);
+        trim();
+    }
+
+    private static long index(Path f) {
+        String n = f.getFileName().toString();
+        return Long.parseLong(n.substring(4, n.length() - 4));
+    }
+
+    private static boolean full(Segment s) {
+        return s.count >= s.capacity;
+    }
+
+    /** 既存のセグメントを開く（capacity < 0）か、新しく作る。壊れていれば null */
+    private Segment map(Path f, int newCapacity) throws IOException {
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int cap = newCapacity;
+            if (cap < 0) {
+                if (ch.size() < HEADER) return null;
+                MappedByteBuffer head = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+                head.order(ByteOrder.LITTLE_ENDIAN);
+                if (head.getInt(0) != MAGIC || head.getInt(4) != VERSION) return null;
+                cap = head.getInt(OFF_CAPACITY);
+                if (cap <= 0 || ch.size() < HEADER + (long) cap * RECORD) return null;
+            }
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) cap * RECORD);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (newCapacity >= 0) {
+                map.putInt(0, MAGIC);
+                map.putInt(4, VERSION);
+                map.putInt(OFF_CAPACITY, cap);
+                map.putInt(OFF_COUNT, 0);
+            }
+            int count = Math.min(Math.max(0, map.getInt(OFF_COUNT)), cap);
+            return new Segment(f, map, cap, count);
+        }
+    }
+
+    private Segment create() throws IOException {
+        Path f = dir.resolve(String.format("seg-%09d.log", nextIndex++));
+        return map(f, capacity);
+    }
+
+    /** 1件追記する */
+    public synchronized void append(long time, UUID player, long packed) throws IOException {
+        List<Segment> segs = segments;
+        Segment s = segs.get(segs.size() - 1);
+        if (full(s)) {
+            s.map.force();
+            List<Segment> next = new ArrayList<>(segs);
+            next.add(s = create());
+            segments = List.copyOf(next);
+            trim();
+        }
+        int at = HEADER + s.count * RECORD;
+        long hi = player.getMostSignificantBits(), lo = player.getLeastSignificantBits();
+        s.map.putLong(at, time);
+        s.map.putLong(at + 8, hi);
+        s.map.putLong(at + 16, lo);
+        s.map.putLong(at + 24, packed);
+        bloomAdd(s.map, hi, lo);
+        s.count++;
+        s.map.putInt(OFF_COUNT, s.count); // レコードを書いてから件数を進める
+    }
+
+    /** maxSegments を超えた古いセグメントを消す（マップは GC で解放される） */
+    private void trim() {
+        List<Segment> segs = segments;
+        if (segs.size() <= maxSegments) return;
+        List<Segment> drop = segs.subList(0, segs.size() - maxSegments);
+        for (Segment s : drop) {
+            try { Files.deleteIfExists(s.file); } catch (IOException ignore) {} // Windows ではマップ中は消せない（次回起動時に消える）
+        }
+        segments = List.copyOf(segs.subList(segs.size() - maxSegments, segs.size()));
+    }
+
+    /**
+     * player のレコードを新しい順に最大 limit 件、times/packed に書き出して件数を返す。
+     * 配列は limit 以上の長さが必要。
+     */
+    public int scan(UUID player, long[] times, long[] packed, int limit) {
+        long hi = player.getMostSignificantBits(), lo = player.getLeastSignificantBits();
+        List<Segment> segs = segments;
+        int n = 0;
+        for (int si = segs.size() - 1; si >= 0 && n < limit; si--) {
+            Segment s = segs.get(si);
+            if (!bloomMayContain(s.map, hi, lo)) continue;
+            for (int i = s.count - 1; i >= 0 && n < limit; i--) {
+                int at = HEADER + i * RECORD;
+                if (s.map.getLong(at + 8) != hi || s.map.getLong(at + 16) != lo) continue;
+                times[n] = s.map.getLong(at);
+                packed[n] = s.map.getLong(at + 24);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /** 保存済みのレコード数（全セグメント） */
+    public long size() {
+        long total = 0;
+        for (Segment s : segments) total += s.count;
+        return total;
+    }
+
+    /** ディスクへ書き出す（停止時・定期） */
+    public synchronized void flush() {
+        List<Segment> segs = segments;
+        segs.get(segs.size() - 1).map.force();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    // ===== Bloom フィルタ（UUID から3ビット） =====
+    private static int h(long hi, long lo, int i) {
+        long x = hi * 0x9E3779B97F4A7C15L + lo + i * 0xC2B2AE3D27D4EB4FL;
+        x ^= x >>> 31;
+        x *= 0xBF58476D1CE4E5B9L;
+        x ^= x >>> 29;
+        return (int) (x & (BLOOM_BITS - 1));
+    }
+
+    private static void bloomAdd(MappedByteBuffer map, long hi, long lo) {
+        for (int i = 0; i < 3; i++) {
+            int bit = h(hi, lo, i);
+            int at = OFF_BLOOM + (bit >>> 3);
+            map.put(at, (byte) (map.get(at) | (1 << (bit & 7))));
+        }
+    }
+
+    private static boolean bloomMayContain(MappedByteBuffer map, long hi, long lo) {
+        for (int i = 0; i < 3; i++) {
+            int bit = h(hi, lo, i);
+            if ((map.get(OFF_BLOOM + (bit >>> 3)) & (1 << (bit & 7))) == 0) return false;
+        }
+        return true;
+    }
+}
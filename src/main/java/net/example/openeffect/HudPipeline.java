@@ -0,0 +1,87 @@
+package net.example.openeffect;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HUD(ActionBar) の送信。
+ * - 文字列は頭上表示で描画済みのもの（DisplayManager#renderedText）を区切りだけ変えて使い回す
+ * - 内容が同じ間は送らない。ただしクライアント側で消える前（keepAlive）には送り直す
+ * - 毎 tick 確認するので、残り時間が変わった次の tick に追従する（描画は EffectTracker の予約どおり）
+ * - グローバルのスレッドから読むのは描画済みの文字列だけで、プレイヤー（効果・位置）には触らない。
+ *   送信は viewer のスレッドで行う（Folia でリージョンをまたがない）
+ */
+public class HudPipeline {
+
+    private static final String SEP = " | ";
+    // クライアントの ActionBar は約 60tick で消えるので、それより前に送り直す
+    private static final int MAX_KEEP_ALIVE_TICKS = 50;
+
+    private static final class Sent {
+        volatile String source; // 元にした頭上テキスト（同一インスタンスなら内容も同じ）
+        volatile Component component;
+        volatile long at;
+    }
+
+    private final DisplayManager displays;
+    private final ViewerEligibility eligibility;
+    private final TaskRunner runner;
+    private final Stats stats;
+
+    private final Map<UUID, Sent> sent = new ConcurrentHashMap<>();
+    private volatile int keepAliveTicks;
+
+    public HudPipeline(DisplayManager displays, ViewerEligibility eligibility, TaskRunner runner, Stats stats, int keepAliveTicks) {
+        this.displays = displays;
+        this.eligibility = eligibility;
+        this.runner = runner;
+        this.stats = stats;
+        setKeepAliveTicks(keepAliveTicks);
+    }
+
+    /** hudUpdateTicks（内容が変わらない時の再送間隔）の反映 */
+    public void setKeepAliveTicks(int ticks) {
+        this.keepAliveTicks = Math.max(1, Math.min(ticks, MAX_KEEP_ALIVE_TICKS));
+    }
+
+    /** 毎 tick（グローバル）。送る必要がある viewer にだけ viewer のスレッドで送信する */
+    public void tick() {
+        Set<UUID> viewers = eligibility.hudViewers();
+        if (sent.size() > viewers.size()) sent.keySet().retainAll(viewers); // OFF/ログアウトした分を掃除
+        if (viewers.isEmpty()) return;
+
+        long now = runner.currentTick();
+        for (UUID id : viewers) {
+            String source = displays.renderedText(id);
+            if (source == null || source.isEmpty()) continue; // 初回描画待ち
+            Sent s = sent.get(id);
+            if (s != null && s.source == source && now - s.at < keepAliveTicks) continue;
+
+            Player p = Bukkit.getPlayer(id);
+            if (p == null) continue;
+            if (s == null) {
+                s = new Sent();
+                sent.put(id, s);
+            }
+            if (s.source != source) {
+                s.component = displays.component(source.replace("\n", SEP));
+                s.source = source;
+            }
+            s.at = now;
+            Component c = s.component;
+            stats.count(Stats.Counter.HUD_SEND);
+            runner.runFor(p, () -> p.sendActionBar(c));
+        }
+    }
+
+    /** 次の tick で必ず送り直す（リスポーン等でクライアントの表示が消えた時） */
+    public void invalidate(UUID viewerId) {
+        sent.remove(viewerId);
+    }
+}
@@ -0,0 +1,46 @@
+package net.example.openeffect;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 同じ JVM 内のノード同士でフレームを直接渡す実装（ClusterViewTest など、1つの JVM で複数ノードを動かす検証用）。
+ * 同じ channel 名で作ったものどうしが1つのクラスタになる。受信は publish した側のスレッドで同期的に呼ばれる。
+ */
+public class LocalClusterTransport implements ClusterTransport {
+
+    private static final Map<String, List<LocalClusterTransport>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String channel;
+    private volatile Consumer<byte[]> receiver;
+
+    public LocalClusterTransport(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        CHANNELS.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(this);
+    }
+
+    @Override
+    public void publish(byte[] frame) {
+        List<LocalClusterTransport> peers = CHANNELS.get(channel);
+        if (peers == null) return;
+        for (LocalClusterTransport peer : peers) {
+            Consumer<byte[]> r = peer.receiver;
+            if (peer != this && r != null) r.accept(frame);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<LocalClusterTransport> peers = CHANNELS.get(channel);
+        if (peers != null) peers.remove(this);
+        receiver = null;
+    }
+}
@@ -0,0 +1,208 @@
+package net.example.openeffect;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * 同じマシン上のサーバー同士を Unix ドメインソケット1つで繋ぐ実装。
+ * - 最初に起動したノードが path で待ち受けて中継役（hub）になり、他のノードはそこへ接続する
+ * - hub は受けたフレームを送信元以外の全接続へ中継し、自分の受信コールバックにも渡す
+ * - hub が落ちたら残ったノードのどれかが待ち受けを引き継ぐ（再接続は RETRY_MILLIS ごと）
+ * - hub になれるのは path + ".lock" のロックを取れたノードだけ（hub は待ち受けている間ロックを持ち続ける）。
+ *   ロックは hub のプロセスが落ちると OS が外すので、同時に引き継ごうとしても hub は1つに決まる
+ * 送信は専用スレッドで行い、詰まった時は捨てる（受信側が連番の抜けを見て全量を要求し直す）。
+ * 停止時は送信待ちのフレーム（BYE など）を CLOSE_WAIT_MILLIS まで書き出してから切断する。
+ * フレームは「長さ(int) + 本体」。
+ */
+public class LocalSocketTransport implements ClusterTransport {
+
+    private static final int MAX_FRAME = 1 << 20;
+    private static final int QUEUE_LIMIT = 1024;
+    private static final long RETRY_MILLIS = 2000;
+    private static final long CLOSE_WAIT_MILLIS = 500;
+
+    private final Path path;
+    private final Path lockFile;
+    private final Logger log;
+    private final Set<SocketChannel> peers = ConcurrentHashMap.newKeySet(); // hub: 接続中のノード / 他: hub への接続
+    private final ExecutorService writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_LIMIT), daemon("OpenEffect-Cluster-Writer"), new ThreadPoolExecutor.DiscardPolicy());
+    private volatile Consumer<byte[]> receiver;
+    private volatile boolean running;
+    private volatile ServerSocketChannel server;
+    private Thread loop;
+
+    public LocalSocketTransport(Path path, Logger log) {
+        this.path = path;
+        this.lockFile = path.resolveSibling(path.getFileName() + ".lock");
+        this.log = log;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        this.running = true;
+        loop = daemon("OpenEffect-Cluster").newThread(this::run);
+        loop.start();
+    }
+
+    /** 接続 → 切れたら（hub が落ちた）待ち受けか再接続、を停止まで繰り返す */
+    private void run() {
+        UnixDomainSocketAddress addr = UnixDomainSocketAddress.of(path);
+        while (running) {
+            try (SocketChannel ch = SocketChannel.open(addr)) {
+                peers.add(ch);
+                read(ch, false);
+            } catch (IOException notListening) {
+                if (!running) return;
+                try {
+                    // ロックを取れなければ他のノードが hub（か引き継ぎ中）なので、少し待って接続し直す
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(RETRY_MILLIS / 4));
+                    serve(addr);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) {
+                    // 待ち受けに失敗した。少し待って接続し直す
+                }
+            } finally {
+                peers.clear();
+            }
+            if (!running) return;
+            try { Thread.sleep(RETRY_MILLIS); } catch (InterruptedException e) { return; }
+        }
+    }
+
+    /** ロックを取れたら hub として待ち受ける（停止まで戻らない）。取れなければすぐ戻る */
+    private void serve(UnixDomainSocketAddress addr) throws IOException {
+        try (FileChannel lc = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = tryLock(lc)) {
+            if (lock == null) return;
+            // ロックを持つ hub がいない = 残っているソケットファイルは落ちた hub のもの
+            Files.deleteIfExists(path);
+            listen(addr);
+        }
+    }
+
+    /** 同じ JVM 内の別インスタンスが持っている時も「取れなかった」として扱う */
+    private static FileLock tryLock(FileChannel ch) throws IOException {
+        try {
+            return ch.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private void listen(UnixDomainSocketAddress addr) throws IOException {
+        try (ServerSocketChannel ss = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            ss.bind(addr);
+            server = ss;
+            log.info("[cluster] hub として待ち受けます: " + path);
+            while (running) {
+                SocketChannel ch = ss.accept();
+                peers.add(ch);
+                daemon("OpenEffect-Cluster-Peer").newThread(() -> {
+                    try (ch) {
+                        read(ch, true);
+                    } catch (IOException ignore) {
+                        // 切断
+                    } finally {
+                        peers.remove(ch);
+                    }
+                }).start();
+            }
+        } finally {
+            server = null;
+            try { Files.deleteIfExists(path); } catch (IOException ignore) {}
+        }
+    }
+
+    private void read(SocketChannel ch, boolean relay) throws IOException {
+        ByteBuffer len = ByteBuffer.allocate(4);
+        while (running) {
+            len.clear();
+            readFully(ch, len);
+            int n = len.flip().getInt();
+            if (n < 0 || n > MAX_FRAME) throw new IOException("bad frame length " + n);
+            ByteBuffer body = ByteBuffer.allocate(n);
+            readFully(ch, body);
+            byte[] frame = body.array();
+            if (relay) send(frame, ch);
+            Consumer<byte[]> r = receiver;
+            if (r != null) r.accept(frame);
+        }
+    }
+
+    private static void readFully(SocketChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf) < 0) throw new EOFException();
+        }
+    }
+
+    @Override
+    public void publish(byte[] frame) {
+        send(frame, null);
+    }
+
+    /** except 以外の全接続へ（書き込みは専用スレッド） */
+    private void send(byte[] frame, SocketChannel except) {
+        if (!running || peers.isEmpty()) return;
+        writer.execute(() -> {
+            ByteBuffer out = ByteBuffer.allocate(4 + frame.length).putInt(frame.length).put(frame);
+            for (SocketChannel ch : peers) {
+                if (ch == except) continue;
+                try {
+                    out.rewind();
+                    while (out.hasRemaining()) ch.write(out);
+                } catch (IOException e) {
+                    peers.remove(ch); // 読み込み側で閉じられる
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        receiver = null;
+        // 送信待ち（停止直前の BYE など）を書き出してから切断する。以降の送信は捨てる
+        writer.shutdown();
+        try {
+            writer.awaitTermination(CLOSE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        running = false;
+        writer.shutdownNow();
+        try {
+            ServerSocketChannel ss = server;
+            if (ss != null) ss.close();
+        } catch (IOException ignore) {}
+        for (SocketChannel ch : peers) {
+            try { ch.close(); } catch (IOException ignore) {}
+        }
+        peers.clear();
+        if (loop != null) loop.interrupt();
+    }
+}
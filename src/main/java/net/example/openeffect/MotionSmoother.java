@@ -0,0 +1,134 @@
+package net.example.openeffect;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * positionMode: interpolate の送信判定。
+ * 表示には teleportDuration = interval を設定しておき、クライアントが前回位置から送った位置まで
+ * interval tick かけて滑らかに動かす。ここではクライアント側の見かけの位置を同じ式で再現し、
+ * - interval tick ごとに「今の位置 + 速度 × interval」（先読み位置）を送る
+ * - その間でも、実際の位置と見かけの位置が drift ブロック以上ずれたら（曲がった・止まった）すぐ送り直す
+ * - 止まっていて見かけの位置も一致していれば何も送らない
+ * 歩き・走りのような等速に近い移動では interval tick に1回の送信で追従できる。
+ * target ごとの状態は target のスレッドからだけ触る（Folia でもリージョン単位で独立）。
+ */
+public class MotionSmoother {
+
+    private static final double SETTLED2 = 1.0e-4; // 0.01 ブロック未満は止まっているとみなす
+
+    private static final class Track {
+        World world;
+        double fx, fy, fz;  // 補間の始点（送った時点の見かけの位置）
+        double tx, ty, tz;  // 補間の終点（送った位置）
+        long sentTick;
+        double sx, sy, sz;  // 直近の実位置（速度の推定用）
+        long sampleTick;
+        double vx, vy, vz;  // ブロック/tick
+    }
+
+    private final int interval;
+    private final double drift2;
+    private final Map<UUID, Track> tracks = new ConcurrentHashMap<>();
+    private final Set<UUID> moving = ConcurrentHashMap.newKeySet(); // 見かけの位置がまだ動いている target
+
+    public MotionSmoother(int intervalTicks, double driftBlocks) {
+        this.interval = Math.max(1, intervalTicks);
+        this.drift2 = driftBlocks * driftBlocks;
+    }
+
+    /** 表示の teleportDuration に設定する tick 数 */
+    public int interval() {
+        return interval;
+    }
+
+    /** 表示を at に置き直した時（生成・ワールド移動）：補間なしでそこにいるものとする */
+    public void reset(UUID id, Location at, long tick) {
+        Track t = tracks.computeIfAbsent(id, k -> new Track());
+        t.world = at.getWorld();
+        t.fx = t.tx = t.sx = at.getX();
+        t.fy = t.ty = t.sy = at.getY();
+        t.fz = t.tz = t.sz = at.getZ();
+        t.vx = t.vy = t.vz = 0;
+        t.sentTick = t.sampleTick = tick;
+        moving.remove(id);
+    }
+
+    /**
+     * 実際の位置 at に対して、今送るべき位置を返す（送らなくてよければ null）。
+     * 返す位置は at 自身を先読み位置に書き換えたもの。
+     */
+    public Location next(UUID id, Location at, long tick) {
+        Track t = tracks.get(id);
+        if (t == null || t.world != at.getWorld()) {
+            reset(id, at, tick);
+            return at;
+        }
+
+        double x = at.getX(), y = at.getY(), z = at.getZ();
+        long dt = tick - t.sampleTick;
+        if (dt > 0) { // 同じ tick の2回目は速度を据え置く
+            if (dt <= interval) {
+                t.vx = (x - t.sx) / dt;
+                t.vy = (y - t.sy) / dt;
+                t.vz = (z - t.sz) / dt;
+            } else {
+                t.vx = t.vy = t.vz = 0; // 間が空いた（止まっていた）
+            }
+            t.sx = x; t.sy = y; t.sz = z;
+            t.sampleTick = tick;
+        }
+
+        // クライアントでの見かけの位置
+        long since = tick - t.sentTick;
+        double k = Math.min(1.0, since / (double) interval);
+        double ax = t.fx + (t.tx - t.fx) * k;
+        double ay = t.fy + (t.ty - t.fy) * k;
+        double az = t.fz + (t.tz - t.fz) * k;
+
+        boolean still = t.vx * t.vx + t.vy * t.vy + t.vz * t.vz < SETTLED2;
+        if (dist2(x, y, z, ax, ay, az) <= drift2) {
+            if (since < interval) return null;                          // 補間中で、ずれも小さい
+            if (still && dist2(x, y, z, t.tx, t.ty, t.tz) < SETTLED2) { // 止まっていて位置も合っている
+                moving.remove(id);
+                return null;
+            }
+        }
+
+        t.fx = ax; t.fy = ay; t.fz = az;
+        t.tx = x + t.vx * interval;
+        t.ty = y + t.vy * interval;
+        t.tz = z + t.vz * interval;
+        t.sentTick = tick;
+        moving.add(id); // 止まっていても、見かけの位置が追いつくまでは確認を続ける
+        at.setX(t.tx);
+        at.setY(t.ty);
+        at.setZ(t.tz);
+        return at;
+    }
+
+    /** 移動イベントが無くても毎 tick 確認が要るか（補間中・先読みの行き過ぎを直す可能性がある） */
+    public boolean isMoving(UUID id) {
+        return moving.contains(id);
+    }
+
+    public void forget(UUID id) {
+        tracks.remove(id);
+        moving.remove(id);
+    }
+
+    public void clear() {
+        tracks.clear();
+        moving.clear();
+    }
+
+    private static double dist2(double x1, double y1, double z1, double x2, double y2, double z2) {
+        double dx = x1 - x2, dy = y1 - y2, dz = z1 - z2;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
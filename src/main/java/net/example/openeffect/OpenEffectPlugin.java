@@ -1,34 +1,42 @@
 package net.example.openeffect;
 
-import net.kyori.adventure.text.Component;
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.command.TabExecutor;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPotionEffectEvent;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandSendEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.inventory.meta.SkullMeta;
-import org.bukkit.persistence.PersistentDataContainer;
-import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 
+import java.io.File;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 管理GUI + 管理者のみの表示設定（/openeffect config）。
@@ -37,6 +45,7 @@ import java.util.stream.Collectors;
 public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecutor {
 
     // === タイトル ===
+    // 表示用（判定は GuiHolder で行う）
     private static final String GUI_TITLE_MAIN    = "OpenEffect 設定";
     private static final String GUI_TITLE_ADMIN   = "OpenEffect 管理";
     private static final String GUI_TITLE_EFFECT_PREFIX = "効果: ";
@@ -44,23 +53,52 @@ public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecuto
     // === 管理GUI設定 ===
     private static final int PAGE_SIZE = 45; // 5行 x 9列
 
-    // === 表示状態保存（管理者のみ操作可） ===
-    private final Set<UUID> enabledOverhead      = new HashSet<>(); // Overhead全体を見る
-    private final Set<UUID> enabledHud           = new HashSet<>(); // HUDを見る
-    private final Set<UUID> enabledSelfOverhead  = new HashSet<>(); // 自分の頭上を表示する
+    // === 表示状態保存（管理者のみ操作可）: toggles.yml へ非同期保存 ===
+    private ToggleStore toggles;
+    // 権限 × トグルの事前計算（ホットパスはここだけを読む）
+    private final ViewerEligibility eligibility = new ViewerEligibility();
+
+    // 権限の定期再確認（権限プラグインが合図を出さない場合の保険）
+    private static final int PERMISSION_RECHECK_TICKS = 200;
+
+    // === 計測（/openeffect stats, JFR） ===
+    private final Stats stats = new Stats();
 
     // === 実体 ===
+    private TaskRunner runner; // Paper: メインスレッド / Folia: リージョンごと
+    private EffectTracker effects;
     private DisplayManager displays;
+    private HudPipeline hud;
 
     // === 周期 ===
     private int updateTicks;     // 頭上TextDisplay更新
-    private int hudUpdateTicks;  // HUD(ActionBar)更新
+    private int hudUpdateTicks;  // HUD(ActionBar)の再送間隔（内容が同じ時）
 
     // === 管理GUI状態 ===
-    private final Map<UUID, UUID> openEffectView = new HashMap<>(); // viewer -> target
-    private final Map<UUID, Inventory> openEffectInv = new HashMap<>();
-    private final Map<UUID, Integer> adminPage = new HashMap<>();
+    // Folia では viewer ごとに別スレッドから触られる
+    private EffectInspector inspector; // 開いている効果一覧（残り時間などを差分で自動更新）
     private NamespacedKey KEY_TARGET_UUID;
+    // 画面ごとのクリック処理表（起動時に1回）
+    private GuiHolder.Table settingsTable, adminTable, effectsTable;
+    private AdminRoster roster; // 名前順の名簿 + 頭アイテムのキャッシュ
+    private ClusterView cluster; // 他サーバーのプレイヤー（cluster.enabled: false なら null）
+    private EffectHistory history; // 効果の履歴（history.enabled: false なら null）
+    private EffectSnapshots snapshots; // 他プラグイン向けの EffectSnapshotService
+    private static final int HISTORY_DEFAULT = 20, HISTORY_MAX = 200;
+    private static final java.time.format.DateTimeFormatter HISTORY_TIME =
+            java.time.format.DateTimeFormatter.ofPattern("MM/dd HH:mm:ss").withZone(java.time.ZoneId.systemDefault());
+    // 中身が変わらない飾り/ボタン（setItem はコピーを置くので使い回せる）
+    private final Map<String, ItemStack> templates = new ConcurrentHashMap<>();
+
+    public OpenEffectPlugin() {
+        super();
+    }
+
+    /** サーバー外（ベンチマーク/負荷シミュレーターの疑似サーバー）で起動するための初期化 */
+    @SuppressWarnings("removal")
+    protected OpenEffectPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onEnable() {
@@ -73,10 +111,35 @@ public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecuto
             updateTicks    = Math.max(1,  getConfig().getInt("updateTicks", 1));
             hudUpdateTicks = Math.max(10, getConfig().getInt("hudUpdateTicks", 40));
 
-            loadEnabledSets();
+            runner = TaskRunner.create(this);
+            stats.registerJfr();
+            toggles = new ToggleStore(this, runner, stats);
+            toggles.load(getConfig()); // 初回は config.yml の旧リストを引き継ぐ
 
-            displays = new DisplayManager(this);
+            effects  = new EffectTracker(runner.isRegionized());
+            displays = new DisplayManager(this, runner, effects);
+            displays.setFollowOnMove(getConfig().getBoolean("updateOnMove", true));
+            hud = new HudPipeline(displays, eligibility, runner, stats, hudUpdateTicks);
             KEY_TARGET_UUID = new NamespacedKey(this, "target");
+            roster = new AdminRoster(KEY_TARGET_UUID);
+            inspector = new EffectInspector(this, runner, roster, stats);
+            displays.setRenderListener(inspector::targetChanged);
+            // 頭上に誰も見ていなくても、HUD の本人や効果一覧GUIの対象はテキストを描画し続ける
+            displays.setRenderDemand(id -> eligibility.canSeeHud(id) || inspector.isWatched(id));
+            buildGuiTables();
+            cluster = createCluster();
+            if (getConfig().getBoolean("history.enabled", true)) {
+                history = new EffectHistory(this,
+                        getConfig().getInt("history.perPlayer", 64),
+                        getConfig().getInt("history.segmentRecords", 65536),
+                        getConfig().getInt("history.maxSegments", 64));
+            }
+            snapshots = new EffectSnapshots(this, runner);
+            try {
+                Bukkit.getServicesManager().register(EffectSnapshotService.class, snapshots, this, ServicePriority.Normal);
+            } catch (Throwable t) {
+                getLogger().warning("EffectSnapshotService を登録できませんでした: " + t);
+            }
 
             // コマンド登録（openeffect / open）
             registerCmd("openeffect");
@@ -86,42 +149,99 @@ public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecuto
 
             // 既存オンラインに対し、admin は Overhead 初期ON（なければ追加）
             for (Player p : Bukkit.getOnlinePlayers()) {
-                if (p.hasPermission("openeffect.admin")) {
-                    enabledOverhead.add(p.getUniqueId());
-                    enabledSelfOverhead.add(p.getUniqueId()); // 既定: 自分も表示
+                roster.add(p);
+                snapshots.markDirty(p.getUniqueId());
+                eligibility.refresh(p);
+                if (eligibility.isAdmin(p.getUniqueId())) {
+                    toggles.enable(ToggleStore.Kind.OVERHEAD, p.getUniqueId());
+                    toggles.enable(ToggleStore.Kind.SELF_OVERHEAD, p.getUniqueId()); // 既定: 自分も表示
+                }
+            }
+            rebuildEligibility();
+
+            if (runner.isRegionized()) {
+                // Folia: 各プレイヤーの所属リージョンで初期化し、以降は target ごとのタスクで更新
+                for (Player p : Bukkit.getOnlinePlayers()) {
+                    runner.runFor(p, () -> {
+                        displays.ensureTarget(p);
+                        applyVisibilityFor(p);
+                    });
+                    startTargetTask(p);
                 }
+            } else {
+                // 初期可視適用
+                displays.ensureAllTargets();
+                for (Player viewer : Bukkit.getOnlinePlayers()) applyVisibilityFor(viewer);
+
+                // 頭上ディスプレイ更新
+                runner.runGlobalTimer(() -> {
+                    long t0 = stats.start();
+                    try {
+                        displays.tick();
+                    } catch (Throwable t) {
+                        getLogger().severe("Update task failed: " + t);
+                        t.printStackTrace();
+                    }
+                    stats.stop(Stats.Stage.OVERHEAD, t0);
+                }, updateTicks, updateTicks);
             }
-            saveEnabledSets();
 
-            // 初期可視適用
-            displays.ensureAllTargets();
-            for (Player viewer : Bukkit.getOnlinePlayers()) applyVisibilityFor(viewer);
+            // HUD(ActionBar) 更新（管理者のみ）。毎 tick 確認し、変化時と再送時期だけ送る
+            runner.runGlobalTimer(() -> {
+                long t0 = stats.start();
+                try {
+                    hud.tick();
+                } catch (Throwable t) {
+                    getLogger().severe("HUD task failed: " + t);
+                    t.printStackTrace();
+                }
+                stats.stop(Stats.Stage.HUD, t0);
+            }, 1, 1);
 
-            // 頭上ディスプレイ更新
-            Bukkit.getScheduler().runTaskTimer(this, () -> {
+            // 効果一覧GUIの自動更新。その tick に変化した target の画面だけをまとめて差分更新
+            runner.runGlobalTimer(() -> {
+                long t0 = stats.start();
                 try {
-                    displays.ensureAllTargets();
-                    displays.updateAll();
+                    inspector.tick();
                 } catch (Throwable t) {
-                    getLogger().severe("Update task failed: " + t);
+                    getLogger().severe("Inspector task failed: " + t);
                     t.printStackTrace();
                 }
-            }, updateTicks, updateTicks);
+                stats.stop(Stats.Stage.GUI, t0);
+            }, 1, 1);
 
-            // HUD(ActionBar) 更新（管理者のみ）
-            Bukkit.getScheduler().runTaskTimer(this, () -> {
+            // 他プラグイン向けスナップショット。効果イベントで印の付いたプレイヤーだけ読み直す
+            runner.runGlobalTimer(() -> {
                 try {
-                    for (Player p : Bukkit.getOnlinePlayers()) {
-                        if (canSeeHud(p)) {
-                            var lines = displays.buildEffectLines(p);
-                            p.sendActionBar(Component.text(lines.isEmpty() ? "" : String.join(" | ", lines)));
-                        }
+                    snapshots.tick();
+                } catch (Throwable t) {
+                    getLogger().severe("Snapshot task failed: " + t);
+                    t.printStackTrace();
+                }
+            }, 1, 1);
+
+            // クラスタへ効果の差分を送る（受信はトランスポートのスレッド）
+            if (cluster != null) {
+                cluster.start();
+                runner.runGlobalTimer(() -> {
+                    try {
+                        cluster.tick();
+                    } catch (Throwable t) {
+                        getLogger().severe("Cluster task failed: " + t);
+                        t.printStackTrace();
                     }
+                }, 1, Math.max(1, getConfig().getInt("cluster.publishTicks", 10)));
+            }
+
+            // 権限の定期再確認
+            runner.runGlobalTimer(() -> {
+                try {
+                    for (Player p : Bukkit.getOnlinePlayers()) runner.runFor(p, () -> refreshEligibility(p));
                 } catch (Throwable t) {
-                    getLogger().severe("HUD task failed: " + t);
+                    getLogger().severe("Permission recheck failed: " + t);
                     t.printStackTrace();
                 }
-            }, hudUpdateTicks, hudUpdateTicks);
+            }, PERMISSION_RECHECK_TICKS, PERMISSION_RECHECK_TICKS);
 
             getLogger().info("== === ==");
             getLogger().info("OpenEffect v1.1.2 Developed by NOASABA (by PIARIS,nanosize)");
@@ -136,8 +256,14 @@ public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecuto
     @Override
     public void onDisable() {
         try {
+            stats.unregisterJfr();
+            try { Bukkit.getServicesManager().unregisterAll(this); } catch (Throwable ignore) {}
+            if (snapshots != null) snapshots.clear();
+            if (runner != null) runner.cancelAll();
             if (displays != null) displays.despawnAll();
-            saveEnabledSets();
+            if (cluster != null) cluster.shutdown();
+            if (history != null) history.shutdown(); // ログをディスクへ書き出す
+            if (toggles != null) toggles.shutdown(); // 保留中の変更を同期で書き出す
         } catch (Throwable t) {
             getLogger().severe("Disable failed: " + t);
             t.printStackTrace();
@@ -145,6 +271,57 @@ public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecuto
         getLogger().info("OpenEffect disabled.");
     }
 
+    /** cluster.transport: socket | memory | service */
+    private ClusterView createCluster() {
+        if (!getConfig().getBoolean("cluster.enabled", false)) return null;
+        String node = getConfig().getString("cluster.node", "");
+        if (node == null || node.isEmpty()) {
+            try { node = "server-" + Bukkit.getPort(); } catch (Throwable ignore) { node = UUID.randomUUID().toString().substring(0, 8); }
+        }
+        String kind = getConfig().getString("cluster.transport", "socket");
+        ClusterTransport transport;
+        if ("memory".equalsIgnoreCase(kind)) {
+            transport = new LocalClusterTransport(getConfig().getString("cluster.channel", "openeffect"));
+        } else if ("service".equalsIgnoreCase(kind)) {
+            transport = null;
+            try { transport = Bukkit.getServicesManager().load(ClusterTransport.class); } catch (Throwable ignore) {}
+            if (transport == null) {
+                getLogger().warning("cluster.transport: service には ClusterTransport の登録が必要です。クラスタ表示は無効です。");
+                return null;
+            }
+        } else {
+            transport = new LocalSocketTransport(
+                    java.nio.file.Path.of(getConfig().getString("cluster.socket", "/tmp/openeffect-cluster.sock")), getLogger());
+        }
+        getLogger().info("[cluster] node=" + node + " transport=" + kind);
+        return new ClusterView(this, runner, stats, transport, node,
+                getConfig().getLong("cluster.heartbeatSeconds", 5), getConfig().getLong("cluster.timeoutSeconds", 15));
+    }
+
+    /** Folia: target の所属リージョンで頭上表示を更新するタスク（プレイヤーが消えると止まる） */
+    private void startTargetTask(Player p) {
+        runner.runTimerFor(p, () -> {
+            long t0 = stats.start();
+            try {
+                displays.tickTarget(p);
+            } catch (Throwable t) {
+                getLogger().severe("Update task failed: " + t);
+                t.printStackTrace();
+            }
+            stats.stop(Stats.Stage.OVERHEAD, t0);
+        }, updateTicks, updateTicks);
+    }
+
+    /** 計測（DisplayManager などが記録先に使う） */
+    public Stats stats() {
+        return stats;
+    }
+
+    // ベンチマーク/シミュレーター用
+    DisplayManager displays() {
+        return displays;
+    }
+
     private void registerCmd(String name) {
         PluginCommand cmd = getCommand(name);
         if (cmd != null) {
@@ -157,28 +334,94 @@ public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecuto
     @EventHandler
     public void onJoin(PlayerJoinEvent e) {
         Player p = e.getPlayer();
+        roster.add(p);
         // 管理者のみ初期ON & ヒント表示
-        if (p.hasPermission("openeffect.admin")) {
-            enabledOverhead.add(p.getUniqueId());
-            enabledSelfOverhead.add(p.getUniqueId()); // デフォルトで自分も表示
+        eligibility.refresh(p);
+        if (eligibility.isAdmin(p.getUniqueId())) {
+            toggles.enable(ToggleStore.Kind.OVERHEAD, p.getUniqueId());
+            toggles.enable(ToggleStore.Kind.SELF_OVERHEAD, p.getUniqueId()); // デフォルトで自分も表示
         }
-        displays.ensureAllTargets();
+        rebuildEligibility();
+        displays.ensureTarget(p);
+        effects.markDirty(p.getUniqueId());
+        snapshots.markDirty(p.getUniqueId());
+        if (cluster != null) cluster.markDirty(p.getUniqueId());
         applyVisibilityFor(p);
+        if (runner.isRegionized()) startTargetTask(p);
     }
 
     @EventHandler
     public void onQuit(PlayerQuitEvent e) {
         // ログアウトしたターゲットの頭上テキストを即削除（残留対策）
         displays.removeTarget(e.getPlayer().getUniqueId());
+        displays.viewerQuit(e.getPlayer().getUniqueId());
         // ビューア側の管理GUI状態も掃除
         cleanupViewer(e.getPlayer().getUniqueId());
+        roster.remove(e.getPlayer().getUniqueId());
+        if (cluster != null) cluster.playerLeft(e.getPlayer().getUniqueId());
+        snapshots.playerLeft(e.getPlayer().getUniqueId());
+        if (history != null) history.forget(e.getPlayer().getUniqueId());
+        if (eligibility.remove(e.getPlayer().getUniqueId())) rebuildEligibility();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onCommandsSent(PlayerCommandSendEvent e) {
+        // コマンド一覧の再送 = 権限再計算の合図（OP変更・権限プラグインの更新）
+        refreshEligibility(e.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPotionEffect(EntityPotionEffectEvent e) {
+        // 適用前に呼ばれるため、ここでは印だけ付けて次の tick で描画する
+        if (!(e.getEntity() instanceof Player)) return;
+        effects.markDirty(e.getEntity().getUniqueId());
+        snapshots.markDirty(e.getEntity().getUniqueId());
+        if (cluster != null) cluster.markDirty(e.getEntity().getUniqueId()); // 他サーバーへは差分だけ
+        if (history != null) history.record(e.getEntity().getUniqueId(), e);
     }
 
     @EventHandler
+    public void onRespawn(PlayerRespawnEvent e) {
+        Player p = e.getPlayer();
+        effects.markDirty(p.getUniqueId()); // 死亡で効果が消える & 相乗りの付け直し
+        snapshots.markDirty(p.getUniqueId());
+        // リスポーン後にクライアントのエンティティが作り直されるので1tick後に送り直す
+        runner.runLaterFor(p, () -> { if (p.isOnline()) displays.viewerReset(p); }, 1);
+        hud.invalidate(p.getUniqueId());
+    }
+
+    @EventHandler
+    public void onChangedWorld(PlayerChangedWorldEvent e) {
+        displays.onWorldChanged(e.getPlayer()); // 頭上表示は移動先ワールドのものに入れ替え（テキストは次の tick）
+        effects.markDirty(e.getPlayer().getUniqueId());
+        displays.viewerReset(e.getPlayer());
+        hud.invalidate(e.getPlayer().getUniqueId());
+        displays.onMoved(e.getPlayer(), e.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onMove(PlayerMoveEvent e) {
-        if (!getConfig().getBoolean("updateOnMove", true)) return;
-        if (e.getFrom().toVector().distanceSquared(e.getTo().toVector()) < 1.0E-6) return;
-        displays.updateOne(e.getPlayer());
+        // 印だけ付ける。近傍セルの見直しと位置合わせは tick の終わりに1回（Folia は target のタスク）
+        displays.markMoved(e.getPlayer());
+    }
+
+    @EventHandler
+    public void onTickEnd(ServerTickEndEvent e) {
+        long t0 = stats.start();
+        // 移動の反映は頭上表示の定期更新とは別の段階として、動いた人がいた tick だけ記録する
+        if (displays.flushMoved() > 0) stats.stop(Stats.Stage.MOVE, t0);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onTeleport(PlayerTeleportEvent e) {
+        // 乗客付きだとテレポートが拒否されるため先に降ろす（次の更新で付け直し）
+        displays.detach(e.getPlayer());
+        effects.markDirty(e.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTeleportDone(PlayerTeleportEvent e) {
+        displays.onMoved(e.getPlayer(), e.getTo());
     }
 
     // ===== Visibility helper =====
@@ -186,19 +429,33 @@ public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecuto
         displays.applyVisibility(viewer); // ← ポリシー込みで再適用
     }
 
+    /** 権限を確認し直し、変わっていればスナップショットと可視性を更新 */
+    private void refreshEligibility(Player p) {
+        if (!eligibility.refresh(p)) return;
+        rebuildEligibility();
+        applyVisibilityFor(p);
+    }
+
+    private void rebuildEligibility() {
+        eligibility.rebuild(
+                toggles.view(ToggleStore.Kind.OVERHEAD),
+                toggles.view(ToggleStore.Kind.SELF_OVERHEAD),
+                toggles.view(ToggleStore.Kind.HUD));
+    }
+
     /** Overhead（頭上表示）を全体として見られるか（管理者＆トグル） */
     public boolean canSeeOverhead(Player p) {
-        return p.hasPermission("openeffect.admin") && enabledOverhead.contains(p.getUniqueId());
+        return eligibility.canSeeOverhead(p.getUniqueId());
     }
 
     /** 自分自身の頭上を表示するか（OverheadがONのときのみ意味がある） */
     public boolean canSeeOwnOverhead(Player p) {
-        return p.hasPermission("openeffect.admin") && enabledSelfOverhead.contains(p.getUniqueId());
+        return eligibility.canSeeOwnOverhead(p.getUniqueId());
     }
 
     /** HUD（ActionBar）も管理者のみ */
     public boolean canSeeHud(Player p) {
-        return p.hasPermission("openeffect.admin") && enabledHud.contains(p.getUniqueId());
+        return eligibility.canSeeHud(p.getUniqueId());
     }
 
     // ===== /openeffect / open =====
@@ -231,15 +488,42 @@ public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecuto
                 reloadConfig();
                 updateTicks    = Math.max(1,  getConfig().getInt("updateTicks", 1));
                 hudUpdateTicks = Math.max(10, getConfig().getInt("hudUpdateTicks", 40));
+                hud.setKeepAliveTicks(hudUpdateTicks);
+                displays.setFollowOnMove(getConfig().getBoolean("updateOnMove", true));
                 p.sendMessage(ChatColor.GREEN + "[OpenEffect] config reloaded.");
                 return true;
             }
 
+            if (args.length >= 1 && args[0].equalsIgnoreCase("stats")) {
+                if (args.length == 2 && args[1].equalsIgnoreCase("reset")) {
+                    stats.reset();
+                    p.sendMessage(ChatColor.GREEN + "[OpenEffect] stats reset.");
+                    return true;
+                }
+                p.sendMessage(ChatColor.AQUA + "[OpenEffect] stats");
+                for (String line : stats.report()) p.sendMessage(ChatColor.GRAY + line);
+                p.sendMessage(ChatColor.GRAY + "更新待ち: " + displays.updateBacklog()
+                        + " / 変化あり: " + effects.dirtyCount()
+                        + " / 予約: " + effects.scheduledCount());
+                if (cluster != null) {
+                    p.sendMessage(ChatColor.GRAY + "クラスタ: " + cluster.nodeId() + " / 他サーバーのプレイヤー: " + cluster.size());
+                }
+                if (history != null) p.sendMessage(ChatColor.GRAY + "効果履歴: " + history.storedCount() + " 件");
+                return true;
+            }
+
+            if (args.length >= 2 && args[0].equalsIgnoreCase("history")) {
+                showHistory(p, args[1], args.length >= 3 ? args[2] : null);
+                return true;
+            }
+
             // ヘルプ（管理者のみ見える）
             p.sendMessage(ChatColor.AQUA + "使い方:");
             p.sendMessage(ChatColor.GRAY + "/" + label + " config" + ChatColor.DARK_GRAY + " … 自分の表示設定（頭上/HUD）を切替");
             p.sendMessage(ChatColor.GRAY + "/" + label + " gui" + ChatColor.DARK_GRAY + " … 管理GUI（他人の効果閲覧）");
             p.sendMessage(ChatColor.GRAY + "/" + label + " reload" + ChatColor.DARK_GRAY + " … コンフィグ再読込");
+            p.sendMessage(ChatColor.GRAY + "/" + label + " stats [reset]" + ChatColor.DARK_GRAY + " … 処理時間と回数の集計");
+            p.sendMessage(ChatColor.GRAY + "/" + label + " history <player> [件数]" + ChatColor.DARK_GRAY + " … 効果の付与/解除の履歴");
             return true;
 
         } catch (Throwable t) {
@@ -255,39 +539,96 @@ public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecuto
     @Override
     public List<String> onTabComplete(CommandSender s, org.bukkit.command.Command c, String a, String[] args) {
         if (s instanceof Player && ((Player) s).hasPermission("openeffect.admin")) {
-            if (args.length == 1) return Arrays.asList("config","gui","reload");
+            if (args.length == 1) return Arrays.asList("config","gui","reload","stats","history");
+            if (args.length == 2 && args[0].equalsIgnoreCase("stats")) return Collections.singletonList("reset");
+            if (args.length == 2 && args[0].equalsIgnoreCase("history")) {
+                List<String> names = new ArrayList<>();
+                for (Player p : Bukkit.getOnlinePlayers()) {
+                    if (p.getName().regionMatches(true, 0, args[1], 0, args[1].length())) names.add(p.getName());
+                }
+                return names;
+            }
         }
         return Collections.emptyList();
     }
 
+    // ===== /openeffect history =====
+    private void showHistory(Player p, String name, String countArg) {
+        if (history == null) {
+            p.sendMessage(ChatColor.YELLOW + "効果履歴は無効です（config.yml の history.enabled）。");
+            return;
+        }
+        int limit = HISTORY_DEFAULT;
+        if (countArg != null) {
+            try { limit = Math.max(1, Math.min(HISTORY_MAX, Integer.parseInt(countArg))); } catch (NumberFormatException ignore) {}
+        }
+        UUID id = null;
+        Player online = Bukkit.getPlayerExact(name);
+        if (online != null) {
+            id = online.getUniqueId();
+            name = online.getName();
+        } else {
+            try {
+                org.bukkit.OfflinePlayer op = Bukkit.getOfflinePlayerIfCached(name); // 名前からの問い合わせはしない
+                if (op != null) id = op.getUniqueId();
+            } catch (Throwable ignore) {}
+        }
+        if (id == null) {
+            p.sendMessage(ChatColor.YELLOW + "プレイヤーが見つかりません: " + name);
+            return;
+        }
+        String shown = name;
+        history.query(id, limit, list -> runner.runFor(p, () -> sendHistory(p, shown, list)));
+    }
+
+    private void sendHistory(Player p, String name, List<EffectHistory.Entry> list) {
+        if (!p.isOnline()) return;
+        if (list.isEmpty()) {
+            p.sendMessage(ChatColor.YELLOW + name + " の効果履歴はありません。");
+            return;
+        }
+        p.sendMessage(ChatColor.AQUA + "[OpenEffect] " + name + " の効果履歴（新しい順 " + list.size() + " 件）");
+        StringBuilder sb = new StringBuilder(64);
+        for (EffectHistory.Entry e : list) {
+            sb.setLength(0);
+            sb.append(ChatColor.DARK_GRAY).append(HISTORY_TIME.format(java.time.Instant.ofEpochMilli(e.time()))).append(' ');
+            sb.append(e.kind() == EffectHistory.Kind.APPLY || e.kind() == EffectHistory.Kind.CHANGE ? ChatColor.GREEN : ChatColor.YELLOW)
+              .append(e.kind().label).append(' ');
+            org.bukkit.potion.PotionEffectType type = EffectRenderer.typeOf(e.type());
+            sb.append(ChatColor.WHITE)
+              .append(type == null ? e.type() : displays.effectName(new PotionEffect(type, Math.max(0, e.duration()), e.amplifier())))
+              .append(" Lv ").append(e.amplifier() + 1);
+            if (e.kind() == EffectHistory.Kind.APPLY || e.kind() == EffectHistory.Kind.CHANGE) {
+                sb.append(ChatColor.GRAY).append(' ');
+                if (e.duration() < 0) sb.append('∞');
+                else EffectRenderer.appendTime(sb, e.duration() / 20);
+            }
+            sb.append(ChatColor.DARK_GRAY).append(" (").append(e.cause()).append(')');
+            p.sendMessage(sb.toString());
+        }
+    }
+
     // ===== GUI: 自分の設定（頭上/HUD） =====
     private void openSettingsGui(Player p) {
-        Inventory inv = Bukkit.createInventory(p, 9 * 3, GUI_TITLE_MAIN);
+        long t0 = stats.start();
+        Inventory inv = GuiHolder.create(settingsTable, GUI_TITLE_MAIN, 0, null).getInventory();
         for (int i = 0; i < inv.getSize(); i++) inv.setItem(i, filler());
 
-        boolean oh  = enabledOverhead.contains(p.getUniqueId());
-        boolean hd  = enabledHud.contains(p.getUniqueId());
-        boolean soh = enabledSelfOverhead.contains(p.getUniqueId());
-
-        inv.setItem(10, toggleItem(Material.LIME_CONCRETE, Material.RED_CONCRETE, oh,
-                "頭上表示 (全体)", Arrays.asList(
-                        ChatColor.GRAY + "全プレイヤーの頭上テキストを表示します。",
-                        ChatColor.GRAY + "現在: " + (oh ? ChatColor.GREEN + "ON" : ChatColor.YELLOW + "OFF")
-                )));
-        inv.setItem(12, toggleItem(Material.LIGHT_BLUE_CONCRETE, Material.GRAY_CONCRETE, hd,
-                "HUD (ActionBar)", Arrays.asList(
-                        ChatColor.GRAY + "自分のActionBarに効果一覧を表示します。",
-                        ChatColor.GRAY + "現在: " + (hd ? ChatColor.GREEN + "ON" : ChatColor.YELLOW + "OFF")
-                )));
-        inv.setItem(14, toggleItem(Material.EMERALD_BLOCK, Material.EMERALD_ORE, soh,
-                "自分の頭上を表示", Arrays.asList(
-                        ChatColor.GRAY + "頭上表示(全体)がONの時のみ有効。",
-                        ChatColor.GRAY + "現在: " + (soh ? ChatColor.GREEN + "ON" : ChatColor.YELLOW + "OFF")
-                )));
-        inv.setItem(16, simpleItem(Material.CHEST, ChatColor.AQUA + "管理GUIを開く",
-                Arrays.asList(ChatColor.GRAY + "オンラインプレイヤーの効果を確認します。", ChatColor.DARK_GRAY + "/openeffect gui")));
+        boolean oh  = toggles.isEnabled(ToggleStore.Kind.OVERHEAD, p.getUniqueId());
+        boolean hd  = toggles.isEnabled(ToggleStore.Kind.HUD, p.getUniqueId());
+        boolean soh = toggles.isEnabled(ToggleStore.Kind.SELF_OVERHEAD, p.getUniqueId());
+
+        inv.setItem(10, toggleTemplate("overhead", Material.LIME_CONCRETE, Material.RED_CONCRETE, oh,
+                "頭上表示 (全体)", "全プレイヤーの頭上テキストを表示します。"));
+        inv.setItem(12, toggleTemplate("hud", Material.LIGHT_BLUE_CONCRETE, Material.GRAY_CONCRETE, hd,
+                "HUD (ActionBar)", "自分のActionBarに効果一覧を表示します。"));
+        inv.setItem(14, toggleTemplate("selfOverhead", Material.EMERALD_BLOCK, Material.EMERALD_ORE, soh,
+                "自分の頭上を表示", "頭上表示(全体)がONの時のみ有効。"));
+        inv.setItem(16, template("settings.admin", () -> simpleItem(Material.CHEST, ChatColor.AQUA + "管理GUIを開く",
+                Arrays.asList(ChatColor.GRAY + "オンラインプレイヤーの効果を確認します。", ChatColor.DARK_GRAY + "/openeffect gui"))));
 
         p.openInventory(inv);
+        stats.stop(Stats.Stage.GUI, t0);
     }
 
     // ===== GUI: オンライン一覧（管理） =====
@@ -296,226 +637,199 @@ public class OpenEffectPlugin extends JavaPlugin implements Listener, TabExecuto
             viewer.sendMessage(ChatColor.RED + "権限がありません。");
             return;
         }
-        adminPage.put(viewer.getUniqueId(), page);
+        long t0 = stats.start();
 
         boolean includeSelf = getConfig().getBoolean("includeSelfInAdminList", true);
+        UUID exclude = includeSelf ? null : viewer.getUniqueId();
 
-        List<Player> list = Bukkit.getOnlinePlayers().stream()
-                .filter(p -> includeSelf || !p.getUniqueId().equals(viewer.getUniqueId()))
-                .sorted(Comparator.comparing(OfflinePlayer::getName, Comparator.nullsLast(String::compareToIgnoreCase)))
-                .collect(Collectors.toList());
-
-        int total = list.size();
+        int local = roster.size(exclude);
+        int total = local + (cluster == null ? 0 : cluster.size()); // このサーバー → 他サーバーの順
         int maxPage = Math.max(0, (total - 1) / PAGE_SIZE);
         page = Math.max(0, Math.min(page, maxPage));
 
-        int size = 54; // 6行固定（最下段に制御ボタン）
-        Inventory inv = Bukkit.createInventory(viewer, size, GUI_TITLE_ADMIN);
+        GuiHolder gui = GuiHolder.create(adminTable, GUI_TITLE_ADMIN, page, null); // 6行固定（最下段に制御ボタン）
+        Inventory inv = gui.getInventory();
 
-        for (int i = 0; i < size; i++) inv.setItem(i, filler());
+        for (int i = 0; i < inv.getSize(); i++) inv.setItem(i, filler());
 
-        int start = page * PAGE_SIZE;
-        int end = Math.min(total, start + PAGE_SIZE);
         int slot = 0;
-        for (int i = start; i < end; i++) {
-            Player target = list.get(i);
-            inv.setItem(slot++, headItem(target));
+        for (Player target : roster.page(exclude, page * PAGE_SIZE, PAGE_SIZE)) {
+            gui.setTargetAt(slot, target.getUniqueId());
+            inv.setItem(slot++, roster.head(target));
+        }
+        if (cluster != null && slot < PAGE_SIZE) {
+            roster.retainRemote(cluster.ids());
+            for (ClusterView.RemotePlayer target : cluster.page(Math.max(0, page * PAGE_SIZE - local), PAGE_SIZE - slot)) {
+                gui.setTargetAt(slot, target.id());
+                inv.setItem(slot++, roster.head(target));
+            }
         }
 
-        inv.setItem(45, simpleItem(Material.OAK_DOOR, ChatColor.GREEN + "閉じる", List.of(ChatColor.DARK_GRAY + "クリックで閉じる")));
+        inv.setItem(45, template("admin.close", () -> simpleItem(Material.OAK_DOOR, ChatColor.GREEN + "閉じる", List.of(ChatColor.DARK_GRAY + "クリックで閉じる"))));
         inv.setItem(49, simpleItem(Material.BOOK, ChatColor.AQUA + "ページ " + (page + 1) + "/" + (maxPage + 1), List.of(ChatColor.GRAY + "表示のみ")));
-        if (page > 0) inv.setItem(48, simpleItem(Material.ARROW, ChatColor.YELLOW + "前のページ", Collections.emptyList()));
-        if (page < maxPage) inv.setItem(50, simpleItem(Material.ARROW, ChatColor.YELLOW + "次のページ", Collections.emptyList()));
+        if (page > 0) inv.setItem(48, template("admin.prev", () -> simpleItem(Material.ARROW, ChatColor.YELLOW + "前のページ", Collections.emptyList())));
+        if (page < maxPage) inv.setItem(50, template("admin.next", () -> simpleItem(Material.ARROW, ChatColor.YELLOW + "次のページ", Collections.emptyList())));
 
         viewer.openInventory(inv);
+        stats.stop(Stats.Stage.GUI, t0);
     }
 
-    private ItemStack headItem(Player target) {
-        ItemStack it = new ItemStack(Material.PLAYER_HEAD);
-        SkullMeta sm = (SkullMeta) it.getItemMeta();
-        sm.setOwningPlayer(target);
-        sm.setDisplayName(ChatColor.AQUA + target.getName());
-        List<String> lore = new ArrayList<>();
-        int effCount = target.getActivePotionEffects().size();
-        lore.add(ChatColor.GRAY + "効果数: " + ChatColor.WHITE + effCount);
-        lore.add(ChatColor.DARK_GRAY + "クリックで効果を表示");
-        sm.setLore(lore);
-        sm.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
+    // ===== GUI: 効果一覧（管理） =====
+    private void openEffectsGui(Player viewer, Player target, int returnPage) {
+        long t0 = stats.start();
+        String title = GUI_TITLE_EFFECT_PREFIX + target.getName();
+        Inventory inv = GuiHolder.create(effectsTable, title, returnPage, target.getUniqueId()).getInventory();
+        for (int i = 0; i < inv.getSize(); i++) inv.setItem(i, filler());
 
-        // ターゲットUUIDをPDCに埋める
-        PersistentDataContainer pdc = sm.getPersistentDataContainer();
-        pdc.set(KEY_TARGET_UUID, PersistentDataType.STRING, target.getUniqueId().toString());
+        inv.setItem(EffectInspector.SLOT_BACK, template("effects.back", () -> simpleItem(Material.ARROW, ChatColor.GREEN + "戻る", Collections.singletonList(ChatColor.DARK_GRAY + "一覧に戻る"))));
+        inv.setItem(EffectInspector.SLOT_CLOSE, template("effects.close", () -> simpleItem(Material.OAK_DOOR, ChatColor.RED + "閉じる", Collections.singletonList(ChatColor.DARK_GRAY + "クリックで閉じる"))));
+        inspector.open(viewer, target, inv); // 頭・効果の欄を書き込み、以降は変化時に差分更新
+        effects.markDirty(target.getUniqueId()); // 表示が無く描画を止めていた target の更新を再開
 
-        it.setItemMeta(sm);
-        return it;
+        viewer.openInventory(inv);
+        stats.stop(Stats.Stage.GUI, t0);
     }
 
-    // ===== GUI: 効果一覧（管理） =====
-    private void openEffectsGui(Player viewer, Player target) {
-        String title = GUI_TITLE_EFFECT_PREFIX + target.getName();
-        Inventory inv = Bukkit.createInventory(viewer, 54, title);
+    // ===== GUI: 効果一覧（他サーバーのプレイヤー。開いた時点の内容で、自動更新はしない） =====
+    private void openRemoteEffectsGui(Player viewer, ClusterView.RemotePlayer target, int returnPage) {
+        long t0 = stats.start();
+        String title = GUI_TITLE_EFFECT_PREFIX + target.name() + " @" + target.node();
+        Inventory inv = GuiHolder.create(effectsTable, title, returnPage, target.id()).getInventory();
         for (int i = 0; i < inv.getSize(); i++) inv.setItem(i, filler());
-        fillEffectsInventory(inv, target);
 
-        inv.setItem(45, simpleItem(Material.ARROW, ChatColor.GREEN + "戻る", Collections.singletonList(ChatColor.DARK_GRAY + "一覧に戻る")));
-        inv.setItem(53, simpleItem(Material.OAK_DOOR, ChatColor.RED + "閉じる", Collections.singletonList(ChatColor.DARK_GRAY + "クリックで閉じる")));
-
-        openEffectView.put(viewer.getUniqueId(), target.getUniqueId());
-        openEffectInv.put(viewer.getUniqueId(), inv);
+        inv.setItem(EffectInspector.SLOT_HEAD, roster.head(target));
+        long now = System.currentTimeMillis();
+        int n = 0;
+        for (ClusterView.RemoteEffect r : target.effects()) {
+            PotionEffect eff = ClusterView.toPotionEffect(r, now);
+            if (eff == null) continue; // このサーバーで知らない効果
+            int slot = EffectInspector.effectSlot(n++);
+            if (slot < 0) break;
+            inv.setItem(slot, effectItem(eff));
+        }
+        if (n == 0) inv.setItem(EffectInspector.SLOT_NONE, noEffectsItem());
+        inv.setItem(EffectInspector.SLOT_BACK, template("effects.back", () -> simpleItem(Material.ARROW, ChatColor.GREEN + "戻る", Collections.singletonList(ChatColor.DARK_GRAY + "一覧に戻る"))));
+        inv.setItem(EffectInspector.SLOT_CLOSE, template("effects.close", () -> simpleItem(Material.OAK_DOOR, ChatColor.RED + "閉じる", Collections.singletonList(ChatColor.DARK_GRAY + "クリックで閉じる"))));
 
         viewer.openInventory(inv);
+        stats.stop(Stats.Stage.GUI, t0);
     }
 
-    private void fillEffectsInventory(Inventory inv, Player target) {
-        inv.setItem(4, headItem(target)); // 目印
-        var effects = target.getActivePotionEffects();
-        int slot = 9; // 2段目から
-        if (effects.isEmpty()) {
-            inv.setItem(22, simpleItem(Material.PAPER, ChatColor.YELLOW + "効果なし",
-                    Collections.singletonList(ChatColor.GRAY + "現在、付与されている効果はありません。")));
-            return;
-        }
-        for (var eff : effects) {
-            if (slot >= 9 + 45) break;
-            String name = ChatColor.AQUA + displays.effectName(eff);
-            int lv = eff.getAmplifier() + 1;
-            int sec = Math.max(0, eff.getDuration() / 20);
-            String m = String.format("%d:%02d", sec / 60, sec % 60);
-            ItemStack it = simpleItem(Material.TIPPED_ARROW, name, List.of(
-                    ChatColor.GRAY + "Lv " + lv,
-                    ChatColor.GRAY + "残り " + m
-            ));
-            inv.setItem(slot++, it);
-        }
+    ItemStack noEffectsItem() {
+        return template("effects.none", () -> simpleItem(Material.PAPER, ChatColor.YELLOW + "効果なし",
+                Collections.singletonList(ChatColor.GRAY + "現在、付与されている効果はありません。")));
+    }
+
+    ItemStack effectItem(PotionEffect eff) {
+        String name = ChatColor.AQUA + displays.effectName(eff);
+        int lv = eff.getAmplifier() + 1;
+        StringBuilder m = new StringBuilder(8);
+        EffectRenderer.appendTime(m, Math.max(0, eff.getDuration() / 20));
+        return simpleItem(Material.TIPPED_ARROW, name, List.of(
+                ChatColor.GRAY + "Lv " + lv,
+                ChatColor.GRAY + "残り " + m
+        ));
     }
 
     // ===== クリック/クローズ処理 =====
+    // 画面ごとのクリック処理表（起動時に1回）
+    private void buildGuiTables() {
+        GuiHolder.ClickHandler close = (v, gui, e) -> v.closeInventory();
+
+        settingsTable = new GuiHolder.Table(9 * 3)
+                .requires("openeffect.admin") // 二重防御
+                .on(10, (v, gui, e) -> { toggleOverhead(v);     openSettingsGui(v); })
+                .on(12, (v, gui, e) -> { toggleHud(v);          openSettingsGui(v); })
+                .on(14, (v, gui, e) -> { toggleSelfOverhead(v); openSettingsGui(v); })
+                .on(16, (v, gui, e) -> { v.closeInventory(); v.performCommand("openeffect gui"); });
+
+        adminTable = new GuiHolder.Table(54)
+                .on(45, close)
+                .on(48, (v, gui, e) -> openAdminGui(v, Math.max(0, gui.page() - 1)))
+                .on(50, (v, gui, e) -> openAdminGui(v, gui.page() + 1))
+                .otherwise((v, gui, e) -> {
+                    UUID targetId = gui.targetAt(e.getRawSlot());
+                    if (targetId == null) return;
+                    Player target = Bukkit.getPlayer(targetId);
+                    ClusterView.RemotePlayer remote = cluster == null ? null : cluster.player(targetId);
+                    if (target != null && target.isOnline()) openEffectsGui(v, target, gui.page());
+                    else if (remote != null) openRemoteEffectsGui(v, remote, gui.page());
+                    else v.sendMessage(ChatColor.YELLOW + "そのプレイヤーはオフラインです。");
+                });
+
+        effectsTable = new GuiHolder.Table(EffectInspector.SIZE)
+                .on(EffectInspector.SLOT_BACK, (v, gui, e) -> {
+                    cleanupViewer(v.getUniqueId());
+                    openAdminGui(v, gui.page());
+                })
+                .on(EffectInspector.SLOT_CLOSE, close)
+                .onClose((v, gui) -> inspector.close(v.getUniqueId(), gui.getInventory()));
+    }
+
+    // 全インベントリのクリックで呼ばれるので、holder の型判定だけで他の画面を素通りさせる
     @EventHandler
     public void onInventoryClick(InventoryClickEvent e) {
-        if (!(e.getWhoClicked() instanceof Player)) return;
-        Player viewer = (Player) e.getWhoClicked();
-        String title = e.getView().getTitle();
-
-        if (GUI_TITLE_MAIN.equals(title)) {
-            e.setCancelled(true);
-            if (!viewer.hasPermission("openeffect.admin")) return; // 二重防御
-
-            int slot = e.getRawSlot();
-            if (slot == 10) { toggleOverhead(viewer); openSettingsGui(viewer); return; }
-            if (slot == 12) { toggleHud(viewer);      openSettingsGui(viewer); return; }
-            if (slot == 14) { toggleSelfOverhead(viewer); openSettingsGui(viewer); return; }
-            if (slot == 16) { viewer.closeInventory(); viewer.performCommand("openeffect gui"); return; }
-            return;
-        }
-
-        if (GUI_TITLE_ADMIN.equals(title)) {
-            e.setCancelled(true);
-            int slot = e.getRawSlot();
-            if (slot == 45) { viewer.closeInventory(); return; }
-            if (slot == 48) { int page = adminPage.getOrDefault(viewer.getUniqueId(), 0); openAdminGui(viewer, Math.max(0, page - 1)); return; }
-            if (slot == 50) { int page = adminPage.getOrDefault(viewer.getUniqueId(), 0); openAdminGui(viewer, page + 1); return; }
-
-            ItemStack current = e.getCurrentItem();
-            if (current != null && current.getType() == Material.PLAYER_HEAD) {
-                ItemMeta im = current.getItemMeta();
-                if (im instanceof SkullMeta) {
-                    PersistentDataContainer pdc = im.getPersistentDataContainer();
-                    String uuidStr = pdc.get(KEY_TARGET_UUID, PersistentDataType.STRING);
-                    if (uuidStr != null) {
-                        try {
-                            UUID targetId = UUID.fromString(uuidStr);
-                            Player target = Bukkit.getPlayer(targetId);
-                            if (target != null && target.isOnline()) openEffectsGui(viewer, target);
-                            else viewer.sendMessage(ChatColor.YELLOW + "そのプレイヤーはオフラインです。");
-                        } catch (IllegalArgumentException ex) {
-                            viewer.sendMessage(ChatColor.RED + "内部データが不正です。");
-                        }
-                    }
-                }
-            }
-            return;
-        }
+        GuiHolder gui = GuiHolder.of(e.getInventory());
+        if (gui == null) return;
+        e.setCancelled(true);
+        if (e.getWhoClicked() instanceof Player viewer) gui.click(viewer, e);
+    }
 
-        if (title.startsWith(GUI_TITLE_EFFECT_PREFIX)) {
-            e.setCancelled(true);
-            int slot = e.getRawSlot();
-            if (slot == 45) { // 戻る
-                cleanupViewer(viewer.getUniqueId());
-                openAdminGui(viewer, adminPage.getOrDefault(viewer.getUniqueId(), 0));
-                return;
-            }
-            if (slot == 53) { viewer.closeInventory(); return; }
-        }
+    @EventHandler
+    public void onInventoryDrag(InventoryDragEvent e) {
+        if (GuiHolder.of(e.getInventory()) != null) e.setCancelled(true);
     }
 
     @EventHandler
     public void onInventoryClose(InventoryCloseEvent e) {
-        if (!(e.getPlayer() instanceof Player)) return;
-        Player p = (Player) e.getPlayer();
-        String title = e.getView().getTitle();
-        if (title.startsWith(GUI_TITLE_EFFECT_PREFIX)) cleanupViewer(p.getUniqueId());
+        GuiHolder gui = GuiHolder.of(e.getInventory());
+        if (gui != null && e.getPlayer() instanceof Player p) gui.closed(p);
     }
 
     private void cleanupViewer(UUID viewerId) {
-        openEffectView.remove(viewerId);
-        openEffectInv.remove(viewerId);
-    }
-
-    // ===== 保存/読込 =====
-    private void loadEnabledSets() {
-        var cfg = getConfig();
-        enabledOverhead.clear();
-        enabledHud.clear();
-        enabledSelfOverhead.clear();
-        for (String s : cfg.getStringList("enabledOverhead")) {
-            try { enabledOverhead.add(UUID.fromString(s)); } catch (Exception ignore) {}
-        }
-        for (String s : cfg.getStringList("enabledHud")) {
-            try { enabledHud.add(UUID.fromString(s)); } catch (Exception ignore) {}
-        }
-        for (String s : cfg.getStringList("enabledSelfOverhead")) {
-            try { enabledSelfOverhead.add(UUID.fromString(s)); } catch (Exception ignore) {}
-        }
-    }
-    private void saveEnabledSets() {
-        getConfig().set("enabledOverhead",      enabledOverhead.stream().map(UUID::toString).collect(Collectors.toList()));
-        getConfig().set("enabledHud",           enabledHud.stream().map(UUID::toString).collect(Collectors.toList()));
-        getConfig().set("enabledSelfOverhead",  enabledSelfOverhead.stream().map(UUID::toString).collect(Collectors.toList()));
-        saveConfig();
+        inspector.close(viewerId);
     }
 
     // ===== トグル（管理者のみ） =====
+    // 保存は ToggleStore がまとめて非同期に行う
     private void toggleOverhead(Player p) {
-        UUID id = p.getUniqueId();
-        if (enabledOverhead.contains(id)) enabledOverhead.remove(id);
-        else enabledOverhead.add(id);
-        saveEnabledSets();
+        boolean on = toggles.toggle(ToggleStore.Kind.OVERHEAD, p.getUniqueId());
+        rebuildEligibility();
         applyVisibilityFor(p); // 即反映
-        p.sendMessage(ChatColor.AQUA + "頭上表示(全体): " + (enabledOverhead.contains(id) ? ChatColor.GREEN + "ON" : ChatColor.YELLOW + "OFF"));
+        p.sendMessage(ChatColor.AQUA + "頭上表示(全体): " + (on ? ChatColor.GREEN + "ON" : ChatColor.YELLOW + "OFF"));
     }
     private void toggleHud(Player p) {
-        UUID id = p.getUniqueId();
-        if (enabledHud.contains(id)) enabledHud.remove(id);
-        else enabledHud.add(id);
-        saveEnabledSets();
-        p.sendMessage(ChatColor.AQUA + "HUD: " + (enabledHud.contains(id) ? ChatColor.GREEN + "ON" : ChatColor.YELLOW + "OFF"));
+        boolean on = toggles.toggle(ToggleStore.Kind.HUD, p.getUniqueId());
+        rebuildEligibility();
+        effects.markDirty(p.getUniqueId()); // HUD 用のテキストを描き直す
+        p.sendMessage(ChatColor.AQUA + "HUD: " + (on ? ChatColor.GREEN + "ON" : ChatColor.YELLOW + "OFF"));
     }
     private void toggleSelfOverhead(Player p) {
-        UUID id = p.getUniqueId();
-        if (enabledSelfOverhead.contains(id)) enabledSelfOverhead.remove(id);
-        else enabledSelfOverhead.add(id);
-        saveEnabledSets();
+        boolean on = toggles.toggle(ToggleStore.Kind.SELF_OVERHEAD, p.getUniqueId());
+        rebuildEligibility();
         applyVisibilityFor(p); // 自分の表示だけ即反映
-        p.sendMessage(ChatColor.AQUA + "自分の頭上: " + (enabledSelfOverhead.contains(id) ? ChatColor.GREEN + "ON" : ChatColor.YELLOW + "OFF"));
+        p.sendMessage(ChatColor.AQUA + "自分の頭上: " + (on ? ChatColor.GREEN + "ON" : ChatColor.YELLOW + "OFF"));
     }
 
     // ===== 補助（アイテム生成） =====
-    private ItemStack filler() {
-        ItemStack it = new ItemStack(Material.GRAY_STAINED_GLASS_PANE);
-        ItemMeta im = it.getItemMeta();
-        im.setDisplayName(" ");
-        it.setItemMeta(im);
-        return it;
+    private ItemStack template(String key, java.util.function.Supplier<ItemStack> factory) {
+        return templates.computeIfAbsent(key, k -> factory.get());
+    }
+    ItemStack filler() {
+        return template("filler", () -> {
+            ItemStack it = new ItemStack(Material.GRAY_STAINED_GLASS_PANE);
+            ItemMeta im = it.getItemMeta();
+            im.setDisplayName(" ");
+            it.setItemMeta(im);
+            return it;
+        });
+    }
+    // ON/OFF の2種類をそれぞれ1回だけ作る
+    private ItemStack toggleTemplate(String key, Material onMat, Material offMat, boolean on, String title, String description) {
+        return template("toggle." + key + (on ? ".on" : ".off"), () -> toggleItem(onMat, offMat, on, title, Arrays.asList(
+                ChatColor.GRAY + description,
+                ChatColor.GRAY + "現在: " + (on ? ChatColor.GREEN + "ON" : ChatColor.YELLOW + "OFF")
+        )));
     }
     private ItemStack toggleItem(Material onMat, Material offMat, boolean on, String title, List<String> lore) {
         ItemStack it = new ItemStack(on ? onMat : offMat);
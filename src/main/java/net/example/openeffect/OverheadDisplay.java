@@ -0,0 +1,38 @@
+package net.example.openeffect;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Transformation;
+
+/**
+ * 1 target 分の頭上表示。実体（TextDisplay エンティティ）か仮想（パケットのみ）かは DisplayBackend 次第。
+ */
+public interface OverheadDisplay {
+
+    /** まだ使えるか（false なら作り直す） */
+    boolean isValid();
+
+    void remove();
+
+    /** world に置かれているか（実体はワールドを跨いで移せないので、違えば入れ替える） */
+    default boolean isIn(World world) {
+        return true;
+    }
+
+    void setText(String plain);
+
+    void moveTo(Location at);
+
+    /** target に相乗り中か */
+    boolean isMountedOn(Player target);
+
+    /** target に相乗りさせる。乗せられなければ false */
+    boolean mount(Player target, Transformation offset);
+
+    void dismount();
+
+    void show(Player viewer);
+
+    void hide(Player viewer);
+}
@@ -0,0 +1,30 @@
+package net.example.openeffect;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Display;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Transformation;
+
+import java.util.UUID;
+
+/**
+ * 仮想 TextDisplay 用のパケット送信口。
+ * プロトコル実装（ProtocolLib 連携など）は別プラグインが ServicesManager に登録する。
+ * 送信内容を記録するだけのスタブに差し替えれば VirtualDisplayBackend を単体で検証できる。
+ */
+public interface PacketSink {
+
+    /** TextDisplay のメタデータ（送る項目のみ。teleportTicks は位置・回転の補間時間、0 で補間なし） */
+    record Meta(String text, Display.Billboard billboard, Transformation transformation, int teleportTicks) {}
+
+    void spawn(Player viewer, int entityId, UUID entityUuid, Location at);
+
+    void metadata(Player viewer, int entityId, Meta meta);
+
+    void move(Player viewer, int entityId, Location at);
+
+    /** vehicle の乗客を passengerId にする（クライアント側のみ） */
+    void mount(Player viewer, int vehicleId, int passengerId);
+
+    void destroy(Player viewer, int entityId);
+}
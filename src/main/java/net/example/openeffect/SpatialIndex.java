@@ -0,0 +1,109 @@
+package net.example.openeffect;
+
+import org.bukkit.Location;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * プレイヤーのチャンク単位グリッド索引。
+ * - セルはワールドごとに (x >> 4, z >> 4)
+ * - 近傍 = セルのチェビシェフ距離が radiusCells 以内
+ * - 移動ではセルが変わった時だけ索引を更新する
+ * Folia では各リージョンスレッドから同時に更新・検索される。1人の移動（セルの付け替え）は cells の
+ * その人のエントリの中で、セルの中身の出し入れはセルのエントリの中で行う（どちらも ConcurrentHashMap の compute）。
+ * 検索は更新途中の状態を見ることがある（移動中の人が一瞬どちらのセルにも居ない/両方に居る）が、
+ * 次のセル移動か可視判定で正しい状態に戻る。
+ */
+public class SpatialIndex {
+
+    private static final int CELL_SHIFT = 4; // 16ブロック = 1チャンク
+
+    private record Cell(UUID world, int x, int z) {}
+
+    private final int radiusCells;
+    // world -> cellKey -> members（ワールドの表は消さない）
+    private final Map<UUID, Map<Long, Set<UUID>>> worlds = new ConcurrentHashMap<>();
+    private final Map<UUID, Cell> cells = new ConcurrentHashMap<>();
+
+    public SpatialIndex(double radiusBlocks) {
+        this.radiusCells = Math.max(0, (int) Math.ceil(radiusBlocks / (1 << CELL_SHIFT)));
+    }
+
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xffffffffL);
+    }
+
+    public boolean contains(UUID id) {
+        return cells.containsKey(id);
+    }
+
+    /** 位置を反映する。セル（またはワールド）が変わった場合のみ true */
+    public boolean update(UUID id, Location at) {
+        if (at == null || at.getWorld() == null) return false;
+        UUID w = at.getWorld().getUID();
+        int cx = at.getBlockX() >> CELL_SHIFT, cz = at.getBlockZ() >> CELL_SHIFT;
+        Cell prev = cells.get(id);
+        if (prev != null && prev.x == cx && prev.z == cz && prev.world.equals(w)) return false; // 大半はここで終わる
+        boolean[] changed = new boolean[1];
+        cells.compute(id, (k, old) -> {
+            if (old != null && old.x == cx && old.z == cz && old.world.equals(w)) return old;
+            if (old != null) unlink(id, old);
+            link(id, w, cx, cz);
+            changed[0] = true;
+            return new Cell(w, cx, cz);
+        });
+        return changed[0];
+    }
+
+    public void remove(UUID id) {
+        cells.computeIfPresent(id, (k, old) -> {
+            unlink(id, old);
+            return null;
+        });
+    }
+
+    public void clear() {
+        worlds.clear();
+        cells.clear();
+    }
+
+    private void link(UUID id, UUID world, int x, int z) {
+        worlds.computeIfAbsent(world, k -> new ConcurrentHashMap<>())
+                .compute(key(x, z), (k, members) -> {
+                    if (members == null) members = ConcurrentHashMap.newKeySet();
+                    members.add(id);
+                    return members;
+                });
+    }
+
+    private void unlink(UUID id, Cell c) {
+        Map<Long, Set<UUID>> grid = worlds.get(c.world);
+        if (grid == null) return;
+        grid.computeIfPresent(key(c.x, c.z), (k, members) -> {
+            members.remove(id);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    /** a と b が同じワールドの近傍セルにいるか */
+    public boolean isNear(UUID a, UUID b) {
+        Cell ca = cells.get(a), cb = cells.get(b);
+        if (ca == null || cb == null || !ca.world.equals(cb.world)) return false;
+        return Math.abs(ca.x - cb.x) <= radiusCells && Math.abs(ca.z - cb.z) <= radiusCells;
+    }
+
+    /** id の近傍にいるプレイヤー（自分を含む）を out に追加する */
+    public void nearby(UUID id, Collection<UUID> out) {
+        Cell c = cells.get(id);
+        if (c == null) return;
+        Map<Long, Set<UUID>> grid = worlds.get(c.world);
+        if (grid == null) return;
+        for (int dx = -radiusCells; dx <= radiusCells; dx++) {
+            for (int dz = -radiusCells; dz <= radiusCells; dz++) {
+                Set<UUID> members = grid.get(key(c.x + dx, c.z + dz));
+                if (members != null) out.addAll(members);
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package net.example.openeffect;
+
+import jdk.jfr.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 処理時間と呼び出し回数の計測（/openeffect stats）。
+ * - 段階ごとの処理時間はヒストグラム（2の累乗を4分割したバケット、誤差25%以内）に記録
+ * - 回数は LongAdder（Folia ではリージョンスレッドから並行に記録される）
+ * - JFR: 段階ごとに openeffect.Stage、回数は openeffect.Counters を1秒ごとに出力
+ *   （記録していない時は isEnabled の確認だけ）
+ */
+public class Stats {
+
+    public enum Stage {
+        OVERHEAD("overhead"),
+        MOVE("move"),
+        HUD("hud"),
+        VISIBILITY("visibility"),
+        GUI("gui");
+
+        final String label;
+        Stage(String label) { this.label = label; }
+    }
+
+    public enum Counter {
+        TELEPORT("teleport"),
+        SET_TEXT("setText"),
+        SHOW("show"),
+        HIDE("hide"),
+        SPAWN("spawn"),
+        HUD_SEND("hudSend"),
+        GUI_SLOT("guiSlot"),
+        CONFIG_SAVE("configSave"),
+        CLUSTER_SEND("clusterSend"),
+        CLUSTER_BYTES("clusterBytes");
+
+        final String label;
+        Counter(String label) { this.label = label; }
+    }
+
+    @Name("openeffect.Stage")
+    @Label("OpenEffect Stage")
+    @Category("OpenEffect")
+    @StackTrace(false)
+    public static final class StageEvent extends Event {
+        @Label("Stage") String stage;
+        @Label("Elapsed") @Timespan(Timespan.NANOSECONDS) long elapsed;
+    }
+
+    @Name("openeffect.Counters")
+    @Label("OpenEffect Counters")
+    @Category("OpenEffect")
+    @Period("1 s")
+    @StackTrace(false)
+    public static final class CountersEvent extends Event {
+        @Label("Teleports") long teleport;
+        @Label("setText Calls") long setText;
+        @Label("Show Calls") long show;
+        @Label("Hide Calls") long hide;
+        @Label("Spawns") long spawn;
+        @Label("HUD Sends") long hudSend;
+        @Label("GUI Slot Writes") long guiSlot;
+        @Label("Config Saves") long configSave;
+        @Label("Cluster Frames") long clusterSend;
+        @Label("Cluster Bytes") @DataAmount long clusterBytes;
+    }
+
+    private static final EventType STAGE_EVENT = EventType.getEventType(StageEvent.class);
+
+    private final EnumMap<Stage, Histogram> stages = new EnumMap<>(Stage.class);
+    private final EnumMap<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private volatile long since = System.nanoTime();
+    private final Runnable countersHook = this::emitCounters;
+
+    public Stats() {
+        for (Stage s : Stage.values()) stages.put(s, new Histogram());
+        for (Counter c : Counter.values()) counters.put(c, new LongAdder());
+    }
+
+    /** 計測開始（System.nanoTime） */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(Stage stage, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        stages.get(stage).record(elapsed);
+        if (STAGE_EVENT.isEnabled()) {
+            StageEvent ev = new StageEvent();
+            ev.stage = stage.label;
+            ev.elapsed = elapsed;
+            ev.commit();
+        }
+    }
+
+    public void count(Counter counter) {
+        counters.get(counter).increment();
+    }
+
+    public void add(Counter counter, long amount) {
+        counters.get(counter).add(amount);
+    }
+
+    public void reset() {
+        for (Histogram h : stages.values()) h.reset();
+        for (LongAdder a : counters.values()) a.reset();
+        since = System.nanoTime();
+    }
+
+    public void registerJfr() {
+        try { FlightRecorder.addPeriodicEvent(CountersEvent.class, countersHook); } catch (Throwable ignore) {}
+    }
+
+    public void unregisterJfr() {
+        try { FlightRecorder.removePeriodicEvent(countersHook); } catch (Throwable ignore) {}
+    }
+
+    private void emitCounters() {
+        CountersEvent ev = new CountersEvent();
+        ev.teleport = counters.get(Counter.TELEPORT).sum();
+        ev.setText = counters.get(Counter.SET_TEXT).sum();
+        ev.show = counters.get(Counter.SHOW).sum();
+        ev.hide = counters.get(Counter.HIDE).sum();
+        ev.spawn = counters.get(Counter.SPAWN).sum();
+        ev.hudSend = counters.get(Counter.HUD_SEND).sum();
+        ev.guiSlot = counters.get(Counter.GUI_SLOT).sum();
+        ev.configSave = counters.get(Counter.CONFIG_SAVE).sum();
+        ev.clusterSend = counters.get(Counter.CLUSTER_SEND).sum();
+        ev.clusterBytes = counters.get(Counter.CLUSTER_BYTES).sum();
+        ev.commit();
+    }
+
+    /** 表示用の行（コマンド出力） */
+    public List<String> report() {
+        List<String> out = new ArrayList<>();
+        long secs = Math.max(1, (System.nanoTime() - since) / 1_000_000_000L);
+        out.add("集計期間: " + secs + "s（µs: 平均 / p50 / p95 / p99 / 最大）");
+        for (Stage s : Stage.values()) {
+            Histogram h = stages.get(s);
+            long n = h.count();
+            if (n == 0) {
+                out.add(s.label + ": -");
+                continue;
+            }
+            out.add(String.format(Locale.ROOT, "%s: n=%d  %.1f / %.1f / %.1f / %.1f / %.1f",
+                    s.label, n,
+                    h.total() / (double) n / 1000.0,
+                    h.percentile(0.50) / 1000.0,
+                    h.percentile(0.95) / 1000.0,
+                    h.percentile(0.99) / 1000.0,
+                    h.max() / 1000.0));
+        }
+        StringBuilder sb = new StringBuilder("回数:");
+        for (Counter c : Counter.values()) {
+            long v = counters.get(c).sum();
+            sb.append(' ').append(c.label).append('=').append(v)
+              .append(String.format(Locale.ROOT, "(%.1f/s)", v / (double) secs));
+        }
+        out.add(sb.toString());
+        return out;
+    }
+
+    /** ナノ秒の対数ヒストグラム（ロックなし） */
+    static final class Histogram {
+        private static final int BUCKETS = 248; // 2^62 まで
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(bucket(nanos));
+            count.increment();
+            total.add(nanos);
+            long m;
+            while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) { /* retry */ }
+        }
+
+        long count() { return count.sum(); }
+
+        long total() { return total.sum(); }
+
+        long max() { return max.get(); }
+
+        /** p 分位の推定値（バケットの上端） */
+        long percentile(double p) {
+            long n = count();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(p * n);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += buckets.get(b);
+                if (seen >= rank) return b + 1 < BUCKETS ? Math.min(lowerBound(b + 1) - 1, max()) : max();
+            }
+            return max();
+        }
+
+        void reset() {
+            for (int b = 0; b < BUCKETS; b++) buckets.set(b, 0);
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+
+        // 0..3 はそのまま、以降は 2^e を上位2ビットで4分割
+        static int bucket(long v) {
+            if (v < 4) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) ((v >>> (exp - 2)) & 3);
+            return (exp - 1) * 4 + sub;
+        }
+
+        static long lowerBound(int b) {
+            if (b < 4) return b;
+            int exp = b / 4 + 1;
+            int sub = b % 4;
+            return (4L + sub) << (exp - 2);
+        }
+    }
+}
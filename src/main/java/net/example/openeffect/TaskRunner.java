@@ -0,0 +1,41 @@
+package net.example.openeffect;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * スケジューラの差し替え口。
+ * - Paper/Spigot: すべてメインスレッド（BukkitScheduler）
+ * - Folia: グローバル処理は GlobalRegionScheduler、エンティティ単位の処理はその所属リージョンのスレッド
+ */
+public interface TaskRunner {
+
+    /** Folia（リージョンごとのスレッド）で動いているか */
+    boolean isRegionized();
+
+    /** 経過 tick（効果の残り時間の予約に使う） */
+    long currentTick();
+
+    void runGlobalTimer(Runnable task, long delay, long period);
+
+    void runGlobalLater(Runnable task, long delay);
+
+    /** entity を所有するスレッドで実行（既にそのスレッドなら即時） */
+    void runFor(Entity entity, Runnable task);
+
+    void runLaterFor(Entity entity, Runnable task, long delay);
+
+    /** entity を所有するスレッドで周期実行（entity が消えたら自動で止まる） */
+    void runTimerFor(Entity entity, Runnable task, long delay, long period);
+
+    void cancelAll();
+
+    static TaskRunner create(Plugin plugin) {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return new FoliaTaskRunner(plugin);
+        } catch (ClassNotFoundException e) {
+            return new BukkitTaskRunner(plugin);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package net.example.openeffect;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.TextDisplay;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * TextDisplay へのテキスト設定。
+ * - setText(Component) / text(Component) / setText(String) のうち使えるものを起動時に1回だけ解決
+ * - Component は同じ文字列ごとにキャッシュして使い回す（上限付き LRU、スレッド間で共有）
+ */
+public class TextSetter {
+
+    private static final int COMPONENT_CACHE_SIZE = 512;
+
+    // どちらか一方だけが非 null
+    private final MethodHandle componentSetter; // (TextDisplay, Component)void
+    private final MethodHandle stringSetter;    // (TextDisplay, String)void
+
+    private final Map<String, Component> components = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Component> eldest) {
+            return size() > COMPONENT_CACHE_SIZE;
+        }
+    });
+
+    public TextSetter() {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodType byComponent = MethodType.methodType(void.class, Component.class);
+        MethodHandle comp = find(lookup, "setText", byComponent);
+        if (comp == null) comp = find(lookup, "text", byComponent);
+        this.componentSetter = comp;
+        this.stringSetter = comp != null ? null : find(lookup, "setText", MethodType.methodType(void.class, String.class));
+    }
+
+    private static MethodHandle find(MethodHandles.Lookup lookup, String name, MethodType type) {
+        try {
+            return lookup.findVirtual(TextDisplay.class, name, type);
+        } catch (Throwable ignore) {
+            return null;
+        }
+    }
+
+    public void apply(TextDisplay td, String plain) {
+        try {
+            if (componentSetter != null) componentSetter.invokeExact(td, component(plain));
+            else if (stringSetter != null) stringSetter.invokeExact(td, plain);
+        } catch (Throwable ignore) {}
+    }
+
+    public Component component(String plain) {
+        Component c = components.get(plain);
+        if (c == null) {
+            c = Component.text(plain);
+            components.put(plain, c);
+        }
+        return c;
+    }
+}
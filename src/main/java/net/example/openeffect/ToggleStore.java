@@ -0,0 +1,154 @@
+package net.example.openeffect;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * 管理者ごとの表示トグル（頭上/HUD/自分の頭上）の保存先。
+ * - config.yml とは別の toggles.yml に保存（管理者の設定ファイルを書き換えない）
+ * - 変更は debounce して1回にまとめ、書き込みは専用スレッドで行う（tick を止めない）
+ * - 一時ファイルに書いてから置き換えるので、書き込み途中で落ちても壊れない
+ * - Folia ではコマンド/GUI が複数のリージョンスレッドから来るため、状態の読み書きは同期する
+ */
+public class ToggleStore {
+
+    public enum Kind {
+        OVERHEAD("enabledOverhead"),
+        HUD("enabledHud"),
+        SELF_OVERHEAD("enabledSelfOverhead");
+
+        final String path;
+        Kind(String path) { this.path = path; }
+    }
+
+    private static final String FILE_NAME = "toggles.yml";
+    private static final long DEBOUNCE_TICKS = 40; // 2秒分の変更をまとめる
+
+    private final Plugin plugin;
+    private final TaskRunner runner;
+    private final Stats stats;
+    private final File file;
+    private final EnumMap<Kind, Set<UUID>> sets = new EnumMap<>(Kind.class);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "OpenEffect-ToggleStore");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean pending; // 保存予約済み
+
+    public ToggleStore(Plugin plugin, TaskRunner runner, Stats stats) {
+        this.plugin = plugin;
+        this.runner = runner;
+        this.stats = stats;
+        this.file = new File(plugin.getDataFolder(), FILE_NAME);
+        for (Kind k : Kind.values()) sets.put(k, new HashSet<>());
+    }
+
+    /** toggles.yml を読む。無ければ旧形式（config.yml 内のリスト）から引き継ぐ */
+    public synchronized void load(FileConfiguration legacy) {
+        FileConfiguration src = file.exists() ? YamlConfiguration.loadConfiguration(file) : legacy;
+        for (Kind k : Kind.values()) {
+            Set<UUID> set = sets.get(k);
+            set.clear();
+            for (String s : src.getStringList(k.path)) {
+                try { set.add(UUID.fromString(s)); } catch (Exception ignore) {}
+            }
+        }
+        if (!file.exists()) markDirty();
+    }
+
+    public synchronized boolean isEnabled(Kind kind, UUID id) {
+        return sets.get(kind).contains(id);
+    }
+
+    /** 反転して新しい状態を返す */
+    public synchronized boolean toggle(Kind kind, UUID id) {
+        Set<UUID> set = sets.get(kind);
+        boolean on = !set.remove(id);
+        if (on) set.add(id);
+        markDirty();
+        return on;
+    }
+
+    public synchronized void enable(Kind kind, UUID id) {
+        if (sets.get(kind).add(id)) markDirty();
+    }
+
+    /** 現時点のコピー（不変） */
+    public synchronized Set<UUID> view(Kind kind) {
+        return Set.copyOf(sets.get(kind));
+    }
+
+    /** 保存を予約（debounce 中の変更は1回の書き込みにまとまる） */
+    public synchronized void markDirty() {
+        if (pending) return;
+        pending = true;
+        try {
+            runner.runGlobalLater(this::flushAsync, DEBOUNCE_TICKS);
+        } catch (Throwable t) {
+            pending = false; // 無効化中などはシャットダウン時の flush に任せる
+        }
+    }
+
+    private synchronized void flushAsync() {
+        if (!pending) return;
+        pending = false;
+        String yaml = snapshot();
+        writer.execute(() -> write(yaml));
+    }
+
+    /** 停止時：予約を打ち切り、書き込み待ちを終えてから同期で保存 */
+    public void shutdown() {
+        String yaml;
+        synchronized (this) {
+            pending = false;
+            yaml = snapshot();
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write(yaml);
+    }
+
+    // ロック中に内容を確定させる（書き込みスレッドはこの文字列だけを扱う）
+    private String snapshot() {
+        YamlConfiguration out = new YamlConfiguration();
+        for (Kind k : Kind.values()) {
+            List<String> ids = new ArrayList<>(sets.get(k).size());
+            for (UUID id : sets.get(k)) ids.add(id.toString());
+            out.set(k.path, ids);
+        }
+        return out.saveToString();
+    }
+
+    private void write(String yaml) {
+        try {
+            stats.count(Stats.Counter.CONFIG_SAVE);
+            Path dir = plugin.getDataFolder().toPath();
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(FILE_NAME + ".tmp");
+            Files.writeString(tmp, yaml, StandardCharsets.UTF_8);
+            try {
+                Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save " + FILE_NAME, e);
+        }
+    }
+}
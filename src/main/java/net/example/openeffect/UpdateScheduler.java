@@ -0,0 +1,126 @@
+package net.example.openeffect;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 頭上テキスト更新の時間予算付きスケジューラ（単一スレッド用）。
+ * - 更新が必要な target を待ち行列に積み、1tick あたり budget を超えたら残りは次の tick へ回す
+ * - 待ち行列は到着順（round-robin）。同じ target は重複して積まない
+ * - 表示がよく変わる target（heat が高い）は優先行列から先に処理する。
+ *   ただし通常行列も一定割合で必ず処理し、取り残されないようにする
+ * - 高負荷時は表示の鮮度が落ちるだけで、MSPT には上乗せしない
+ */
+public class UpdateScheduler {
+
+    // heat がこの値以上なら優先行列へ
+    private static final int HOT_THRESHOLD = 4;
+    // 優先行列を何件処理したら通常行列を1件処理するか
+    private static final int HOT_RATIO = 3;
+
+    private final long budgetNanos; // 0 以下: 無制限
+
+    private final ArrayDeque<UUID> hot = new ArrayDeque<>();
+    private final ArrayDeque<UUID> normal = new ArrayDeque<>();
+    private final Set<UUID> queued = new HashSet<>();
+    // target -> 最近の表示変化回数（decay で半減）
+    private final Map<UUID, Integer> heat = new HashMap<>();
+    private int hotStreak;
+
+    private long lastUsedNanos;
+    private int lastProcessed;
+
+    public UpdateScheduler(long budgetMicros) {
+        this.budgetNanos = Math.max(0, budgetMicros) * 1000L;
+    }
+
+    /** 更新が必要な target を積む（既に待っていれば何もしない） */
+    public void offer(UUID id) {
+        if (!queued.add(id)) return;
+        if (heat.getOrDefault(id, 0) >= HOT_THRESHOLD) hot.addLast(id);
+        else normal.addLast(id);
+    }
+
+    public void offerAll(Collection<UUID> ids) {
+        for (UUID id : ids) offer(id);
+    }
+
+    /** 表示が実際に変わった時に呼ぶ（優先度の元） */
+    public void noteChanged(UUID id) {
+        heat.merge(id, 1, Integer::sum);
+    }
+
+    /** 周期的に呼び、heat を半減させる（最近よく変わるものだけが優先され続ける） */
+    public void decay() {
+        for (Iterator<Map.Entry<UUID, Integer>> it = heat.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<UUID, Integer> e = it.next();
+            int h = e.getValue() >> 1;
+            if (h == 0) it.remove();
+            else e.setValue(h);
+        }
+    }
+
+    public void forget(UUID id) {
+        if (queued.remove(id)) {
+            hot.remove(id);
+            normal.remove(id);
+        }
+        heat.remove(id);
+    }
+
+    public void clear() {
+        hot.clear();
+        normal.clear();
+        queued.clear();
+        heat.clear();
+    }
+
+    /**
+     * 予算内で待ち行列を処理する。最低1件は必ず処理する（負荷が高くても止まらない）。
+     * @return 処理した件数
+     */
+    public int run(Consumer<UUID> update) {
+        return run(update, 0);
+    }
+
+    /**
+     * 同じ tick に既に spentNanos 使っている分を差し引いた予算で処理する（位置合わせなどの固定の処理の後）。
+     * @return 処理した件数
+     */
+    public int run(Consumer<UUID> update, long spentNanos) {
+        long start = System.nanoTime() - Math.max(0, spentNanos);
+        int n = 0;
+        UUID id;
+        while ((id = next()) != null) {
+            queued.remove(id);
+            update.accept(id);
+            n++;
+            if (budgetNanos > 0 && System.nanoTime() - start >= budgetNanos) break;
+        }
+        lastUsedNanos = System.nanoTime() - start;
+        lastProcessed = n;
+        return n;
+    }
+
+    private UUID next() {
+        if (!hot.isEmpty() && (hotStreak < HOT_RATIO || normal.isEmpty())) {
+            hotStreak++;
+            return hot.pollFirst();
+        }
+        hotStreak = 0;
+        return normal.pollFirst();
+    }
+
+    /** 次の tick へ持ち越した件数 */
+    public int backlog() {
+        return queued.size();
+    }
+
+    public long lastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    public int lastProcessed() {
+        return lastProcessed;
+    }
+}
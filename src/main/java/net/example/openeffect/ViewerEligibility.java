@@ -0,0 +1,78 @@
+package net.example.openeffect;
+
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 表示を見られる viewer の事前計算結果。
+ * - 権限（openeffect.admin）は Join/権限再計算の合図/定期確認の時だけ hasPermission で確認
+ * - トグル状態と掛け合わせた集合をスナップショット（不変 Set）として差し替える
+ * - ホットパスはスナップショットの contains だけを読む
+ */
+public class ViewerEligibility {
+
+    public static final String PERMISSION = "openeffect.admin";
+
+    private record Snapshot(Set<UUID> overhead, Set<UUID> selfOverhead, Set<UUID> hud) {
+        static final Snapshot EMPTY = new Snapshot(Set.of(), Set.of(), Set.of());
+    }
+
+    // 権限を持つオンラインプレイヤー（Folia ではリージョンスレッドからも更新される）
+    private final Set<UUID> admins = ConcurrentHashMap.newKeySet();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /** 権限を確認し直す。変化があれば true（呼び出し側で rebuild する） */
+    public boolean refresh(Player p) {
+        UUID id = p.getUniqueId();
+        return p.hasPermission(PERMISSION) ? admins.add(id) : admins.remove(id);
+    }
+
+    /** ログアウト時。変化があれば true */
+    public boolean remove(UUID id) {
+        return admins.remove(id);
+    }
+
+    public boolean isAdmin(UUID id) {
+        return admins.contains(id);
+    }
+
+    /** トグル状態と権限からスナップショットを作り直す */
+    public synchronized void rebuild(Set<UUID> enabledOverhead, Set<UUID> enabledSelfOverhead, Set<UUID> enabledHud) {
+        snapshot = new Snapshot(
+                intersect(enabledOverhead),
+                intersect(enabledSelfOverhead),
+                intersect(enabledHud));
+    }
+
+    private Set<UUID> intersect(Set<UUID> enabled) {
+        Set<UUID> out = new HashSet<>();
+        for (UUID id : admins) {
+            if (enabled.contains(id)) out.add(id);
+        }
+        return Collections.unmodifiableSet(out);
+    }
+
+    public boolean canSeeOverhead(UUID id) {
+        return snapshot.overhead.contains(id);
+    }
+
+    public boolean canSeeOwnOverhead(UUID id) {
+        return snapshot.selfOverhead.contains(id);
+    }
+
+    public boolean canSeeHud(UUID id) {
+        return snapshot.hud.contains(id);
+    }
+
+    /** HUD を表示するオンライン管理者（不変） */
+    public Set<UUID> hudViewers() {
+        return snapshot.hud;
+    }
+
+    /** 頭上表示を見るオンライン管理者（不変） */
+    public Set<UUID> overheadViewers() {
+        return snapshot.overhead;
+    }
+}
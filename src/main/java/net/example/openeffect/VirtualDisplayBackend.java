@@ -0,0 +1,184 @@
+package net.example.openeffect;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Display.Billboard;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Transformation;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * パケットのみの仮想 TextDisplay。
+ * - サーバー側にはエンティティを作らない（tick・トラッカー・チャンク保存のコストなし）
+ * - show された viewer のうち同じワールドにいる者にだけ spawn/metadata/mount を送る
+ * - 相乗りはクライアント側のみ（vehicle の乗客一覧を上書きする点に注意）
+ * - Folia では複数のリージョンスレッドから触られるため、Handle 単位で同期する
+ * - teleportTicks > 0 ならメタデータで補間時間を送り、move をクライアント側で補間させる
+ */
+public class VirtualDisplayBackend implements DisplayBackend {
+
+    // 実エンティティと衝突しにくいよう上から割り当てる
+    private final AtomicInteger nextId = new AtomicInteger(Integer.MAX_VALUE);
+
+    private final PacketSink sink;
+    private final Billboard billboard;
+    private final int teleportTicks;
+    private final Set<Handle> live = ConcurrentHashMap.newKeySet();
+
+    public VirtualDisplayBackend(PacketSink sink, Billboard billboard, int teleportTicks) {
+        this.sink = sink;
+        this.billboard = billboard;
+        this.teleportTicks = teleportTicks;
+    }
+
+    @Override
+    public OverheadDisplay spawn(Player target, Location at) {
+        Handle h = new Handle(nextId.getAndDecrement(), at.clone());
+        live.add(h);
+        return h;
+    }
+
+    @Override
+    public void viewerReset(Player viewer) {
+        // クライアント側から消えているので、見えるべきものを送り直す
+        for (Handle h : live) h.resend(viewer);
+    }
+
+    @Override
+    public void viewerQuit(UUID viewerId) {
+        for (Handle h : live) h.forget(viewerId);
+    }
+
+    private final class Handle implements OverheadDisplay {
+        private final int id;
+        private final UUID uuid = UUID.randomUUID();
+        private final Set<UUID> viewers = new HashSet<>(); // 見せる対象（ポリシー上）
+        private final Set<UUID> sent = new HashSet<>();    // 実際にクライアントへ送ってある
+        private Location at;
+        private String text = "";
+        private Transformation transformation;
+        private int vehicleId = -1; // 相乗り先（-1: なし）
+        private boolean removed;
+
+        Handle(int id, Location at) {
+            this.id = id;
+            this.at = at;
+        }
+
+        private PacketSink.Meta meta() {
+            return new PacketSink.Meta(text, billboard, transformation, teleportTicks);
+        }
+
+        synchronized void resend(Player viewer) {
+            UUID v = viewer.getUniqueId();
+            sent.remove(v);
+            if (viewers.contains(v)) send(viewer);
+        }
+
+        synchronized void forget(UUID viewerId) {
+            viewers.remove(viewerId);
+            sent.remove(viewerId);
+        }
+
+        /** 同じワールドにいれば spawn 一式を送る */
+        private void send(Player viewer) {
+            if (removed || !Objects.equals(at.getWorld(), viewer.getWorld())) return;
+            if (!sent.add(viewer.getUniqueId())) return;
+            sink.spawn(viewer, id, uuid, at);
+            sink.metadata(viewer, id, meta());
+            if (vehicleId != -1) sink.mount(viewer, vehicleId, id);
+        }
+
+        /** ワールドが変わった時：旧ワールドの viewer から消し、新ワールドの viewer へ送り直す */
+        private void relocate(Location to) {
+            World from = at.getWorld();
+            at = to.clone();
+            if (Objects.equals(from, at.getWorld())) return;
+            for (UUID v : sent) {
+                Player p = Bukkit.getPlayer(v);
+                if (p != null) sink.destroy(p, id);
+            }
+            sent.clear();
+            for (UUID v : viewers) {
+                Player p = Bukkit.getPlayer(v);
+                if (p != null) send(p);
+            }
+        }
+
+        @Override public synchronized boolean isValid() { return !removed; }
+
+        @Override
+        public synchronized void remove() {
+            if (removed) return;
+            for (UUID v : sent) {
+                Player p = Bukkit.getPlayer(v);
+                if (p != null) sink.destroy(p, id);
+            }
+            removed = true;
+            live.remove(this);
+            viewers.clear();
+            sent.clear();
+        }
+
+        @Override
+        public synchronized void setText(String plain) {
+            text = plain;
+            if (sent.isEmpty()) return;
+            PacketSink.Meta meta = meta();
+            for (UUID v : sent) {
+                Player p = Bukkit.getPlayer(v);
+                if (p != null) sink.metadata(p, id, meta);
+            }
+        }
+
+        @Override
+        public synchronized void moveTo(Location to) {
+            World before = at.getWorld();
+            relocate(to);
+            if (vehicleId != -1 || !Objects.equals(before, at.getWorld())) return; // 相乗り中はクライアントが追従
+            for (UUID v : sent) {
+                Player p = Bukkit.getPlayer(v);
+                if (p != null) sink.move(p, id, at);
+            }
+        }
+
+        @Override public synchronized boolean isMountedOn(Player target) { return vehicleId == target.getEntityId(); }
+
+        @Override
+        public synchronized boolean mount(Player target, Transformation offset) {
+            transformation = offset;
+            vehicleId = target.getEntityId();
+            World before = at.getWorld();
+            relocate(target.getLocation());
+            if (!Objects.equals(before, at.getWorld())) return true; // 送り直し済み
+            PacketSink.Meta meta = meta();
+            for (UUID v : sent) {
+                Player p = Bukkit.getPlayer(v);
+                if (p == null) continue;
+                sink.move(p, id, at);
+                sink.metadata(p, id, meta);
+                sink.mount(p, vehicleId, id);
+            }
+            return true;
+        }
+
+        @Override public synchronized void dismount() { vehicleId = -1; }
+
+        @Override
+        public synchronized void show(Player viewer) {
+            if (removed) return;
+            viewers.add(viewer.getUniqueId());
+            send(viewer);
+        }
+
+        @Override
+        public synchronized void hide(Player viewer) {
+            viewers.remove(viewer.getUniqueId());
+            if (sent.remove(viewer.getUniqueId())) sink.destroy(viewer, id);
+        }
+    }
+}
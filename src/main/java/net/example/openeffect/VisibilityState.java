@@ -0,0 +1,160 @@
+package net.example.openeffect;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * viewer ごとの「表示中の target」を BitSet で保持する。
+ * - プレイヤーごとに詰めたスロット番号を割り当て（viewer/target 共通、ログアウトで再利用）
+ * - shown[viewer] = 表示中 target スロット集合、visible[target] = 表示中 viewer スロット集合
+ * - 望ましい集合との差分だけを show/hide すれば良いようにする
+ * Folia では複数のリージョンスレッドから同時に呼ばれる。ロックはスロットごと（shown/visible を持つ Slot）で、
+ * 2つのスロットのロックを同時には持たない。割り当て/返却だけは this で同期する。
+ * 返却したスロットの Slot は捨てて作り直すので、古い参照への書き込みが次の持ち主に混ざることはない。
+ */
+public class VisibilityState {
+
+    private static final class Slot {
+        final UUID id;
+        final BitSet shown = new BitSet();   // この viewer に表示中の target
+        final BitSet visible = new BitSet(); // この target を表示中の viewer
+
+        Slot(UUID id) {
+            this.id = id;
+        }
+    }
+
+    private final Map<UUID, Integer> slotOf = new ConcurrentHashMap<>();
+    private final BitSet used = new BitSet();       // this で同期
+    private volatile Slot[] slots = new Slot[64];   // 差し替えは this で同期
+
+    /** スロットを取得（なければ割り当て） */
+    public int slot(UUID id) {
+        Integer s = slotOf.get(id);
+        if (s != null) return s;
+        synchronized (this) {
+            s = slotOf.get(id);
+            if (s != null) return s;
+            int n = used.nextClearBit(0);
+            Slot[] arr = slots;
+            if (n >= arr.length) slots = arr = Arrays.copyOf(arr, Math.max(n + 1, arr.length * 2));
+            used.set(n);
+            arr[n] = new Slot(id);
+            slotOf.put(id, n);
+            return n;
+        }
+    }
+
+    /** 割り当て済みならスロット、なければ -1 */
+    public int slotIfPresent(UUID id) {
+        Integer s = slotOf.get(id);
+        return s == null ? -1 : s;
+    }
+
+    private Slot at(int slot) {
+        Slot[] arr = slots;
+        return slot >= 0 && slot < arr.length ? arr[slot] : null;
+    }
+
+    public UUID idAt(int slot) {
+        Slot s = at(slot);
+        return s == null ? null : s.id;
+    }
+
+    /** viewer に表示中の target スロットを out に写す */
+    public void copyShown(int viewer, BitSet out) {
+        out.clear();
+        Slot s = at(viewer);
+        if (s == null) return;
+        synchronized (s) { out.or(s.shown); }
+    }
+
+    /** target を表示中の viewer スロットを out に写す */
+    public void copyVisible(int target, BitSet out) {
+        out.clear();
+        Slot s = at(target);
+        if (s == null) return;
+        synchronized (s) { out.or(s.visible); }
+    }
+
+    /** target を表示中の viewer が1人でもいるか */
+    public boolean hasViewers(int target) {
+        Slot s = at(target);
+        if (s == null) return false;
+        synchronized (s) { return !s.visible.isEmpty(); }
+    }
+
+    public boolean isShown(int viewer, int target) {
+        Slot s = at(viewer);
+        if (s == null) return false;
+        synchronized (s) { return s.shown.get(target); }
+    }
+
+    /**
+     * 状態を変える。変わった時だけ true（同じ組を2つのスレッドが同時に show しても、true になるのは片方だけ）。
+     * 判定は viewer 側（shown）で行い、target 側（visible）はその後で合わせる。
+     */
+    public boolean set(int viewer, int target, boolean on) {
+        Slot v = at(viewer), t = at(target);
+        if (v == null || t == null) return false;
+        synchronized (v) {
+            if (v.shown.get(target) == on) return false;
+            v.shown.set(target, on);
+        }
+        synchronized (t) { t.visible.set(viewer, on); }
+        return true;
+    }
+
+    /** target 側の状態を消す（表示の作り直し/削除時） */
+    public void clearTarget(int target) {
+        Slot t = at(target);
+        if (t == null) return;
+        BitSet vs;
+        synchronized (t) {
+            vs = (BitSet) t.visible.clone();
+            t.visible.clear();
+        }
+        for (int v = vs.nextSetBit(0); v >= 0; v = vs.nextSetBit(v + 1)) {
+            Slot sv = at(v);
+            if (sv != null) synchronized (sv) { sv.shown.clear(target); }
+        }
+    }
+
+    /** viewer 側の状態を消す（ログアウト時） */
+    public void clearViewer(int viewer) {
+        Slot v = at(viewer);
+        if (v == null) return;
+        BitSet ts;
+        synchronized (v) {
+            ts = (BitSet) v.shown.clone();
+            v.shown.clear();
+        }
+        for (int t = ts.nextSetBit(0); t >= 0; t = ts.nextSetBit(t + 1)) {
+            Slot st = at(t);
+            if (st != null) synchronized (st) { st.visible.clear(viewer); }
+        }
+    }
+
+    /** 両方向の状態を消してスロットを返却する */
+    public void release(UUID id) {
+        Integer s = slotOf.get(id);
+        if (s == null) return;
+        clearTarget(s);
+        clearViewer(s);
+        synchronized (this) {
+            if (!slotOf.remove(id, s)) return;
+            slots[s] = null;
+            used.clear(s);
+        }
+    }
+
+    public synchronized void clear() {
+        slotOf.clear();
+        used.clear();
+        Arrays.fill(slots, null);
+    }
+
+    public int size() {
+        return slotOf.size();
+    }
+}
@@ -0,0 +1,226 @@
+package net.example.openeffect;
+
+import org.bukkit.Location;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 疑似サーバー上で OpenEffect を動かし、人数ごとの 1tick あたりのコストを測る負荷シミュレーター。
+ * <pre>
+ * ./gradlew simulate                                   # 既定: 50,100,200,500 人
+ * ./gradlew simulate --args="--players 100,1000 --ticks 1200 --csv build/sim.csv"
+ * </pre>
+ * 毎 tick、一部のプレイヤーが歩き、ときどき効果が付いたり外れたりする。
+ * 計測するのはメインスレッド（このスレッド）の CPU 時間・割り当てバイト数と、サーバー API の呼び出し回数。
+ * CPU 時間には疑似サーバー側（イベント発火・プロキシ）の分も含まれるので、絶対値よりも人数や版の間の比較に使う。
+ */
+public final class LoadSimulator {
+
+    private static final PotionEffectType[] TYPES = {
+            PotionEffectType.SPEED, PotionEffectType.SLOWNESS, PotionEffectType.HASTE, PotionEffectType.STRENGTH,
+            PotionEffectType.REGENERATION, PotionEffectType.RESISTANCE, PotionEffectType.FIRE_RESISTANCE,
+            PotionEffectType.NIGHT_VISION, PotionEffectType.INVISIBILITY, PotionEffectType.POISON,
+            PotionEffectType.ABSORPTION, PotionEffectType.LUCK,
+    };
+
+    // 引数（既定値）
+    private int[] counts = {50, 100, 200, 500};
+    private int warmup = 200;
+    private int ticks = 600;
+    private double adminRatio = 0.1;
+    private double area = 512;
+    private double moveRatio = 0.3;     // 1tick に歩くプレイヤーの割合
+    private double effectRate = 0.002;  // 1tick・1人あたり効果が付く/外れる確率
+    private long seed = 42;
+    private Path csv;
+    private final Map<String, Object> overrides = new LinkedHashMap<>();
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        LoadSimulator sim = new LoadSimulator();
+        sim.parse(args);
+        sim.run();
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            String v = i + 1 < args.length ? args[i + 1] : null;
+            switch (a) {
+                case "--players" -> { counts = Arrays.stream(need(a, v).split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray(); i++; }
+                case "--warmup" -> { warmup = Integer.parseInt(need(a, v)); i++; }
+                case "--ticks" -> { ticks = Integer.parseInt(need(a, v)); i++; }
+                case "--admins" -> { adminRatio = Double.parseDouble(need(a, v)); i++; }
+                case "--area" -> { area = Double.parseDouble(need(a, v)); i++; }
+                case "--move" -> { moveRatio = Double.parseDouble(need(a, v)); i++; }
+                case "--effects" -> { effectRate = Double.parseDouble(need(a, v)); i++; }
+                case "--seed" -> { seed = Long.parseLong(need(a, v)); i++; }
+                case "--csv" -> { csv = Path.of(need(a, v)); i++; }
+                case "--set" -> { // config.yml の上書き: --set positionMode=teleport
+                    String kv = need(a, v);
+                    int eq = kv.indexOf('=');
+                    if (eq < 0) throw new IllegalArgumentException("--set expects key=value: " + kv);
+                    overrides.put(kv.substring(0, eq), yamlValue(kv.substring(eq + 1)));
+                    i++;
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + a);
+            }
+        }
+        if (!threads.isCurrentThreadCpuTimeSupported()) throw new IllegalStateException("Thread CPU time is not supported on this JVM");
+        threads.setThreadCpuTimeEnabled(true);
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static String need(String opt, String v) {
+        if (v == null) throw new IllegalArgumentException(opt + " needs a value");
+        return v;
+    }
+
+    private static Object yamlValue(String s) {
+        if (s.equals("true") || s.equals("false")) return Boolean.parseBoolean(s);
+        try { return Integer.parseInt(s); } catch (NumberFormatException ignore) {}
+        try { return Double.parseDouble(s); } catch (NumberFormatException ignore) {}
+        return s;
+    }
+
+    private void run() throws IOException {
+        FakeServer server = FakeServer.start();
+        List<Result> results = new ArrayList<>();
+        System.out.printf(Locale.ROOT, "OpenEffect load simulation: warmup=%d ticks=%d admins=%.0f%% area=%.0f move=%.0f%% effects=%.4f/tick%s%n",
+                warmup, ticks, adminRatio * 100, area, moveRatio * 100, effectRate, overrides.isEmpty() ? "" : " " + overrides);
+        System.out.printf(Locale.ROOT, "%8s %10s %10s %10s %10s %12s %10s %10s %10s%n",
+                "players", "cpu avg", "cpu p50", "cpu p95", "cpu max", "alloc/tick", "alloc MB/s", "api/tick", "displays");
+        for (int n : counts) {
+            Result r = runOnce(server, n);
+            results.add(r);
+            System.out.printf(Locale.ROOT, "%8d %8.1fµs %8.1fµs %8.1fµs %8.1fµs %10.1fKB %10.2f %10.1f %10d%n",
+                    r.players, r.cpuAvg / 1e3, r.cpuP50 / 1e3, r.cpuP95 / 1e3, r.cpuMax / 1e3,
+                    r.allocPerTick / 1024.0, r.allocPerTick * 20 / (1024.0 * 1024.0), r.apiPerTick, r.displays);
+        }
+
+        System.out.println();
+        Result last = results.get(results.size() - 1);
+        System.out.println("Top server API calls per tick at " + last.players + " players:");
+        last.calls.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(10)
+                .forEach(e -> System.out.printf(Locale.ROOT, "  %-40s %10.2f%n", e.getKey(), e.getValue() / (double) ticks));
+        System.out.println();
+        System.out.println("Plugin stage timings at " + last.players + " players:");
+        for (String line : last.stats) System.out.println("  " + line);
+
+        if (csv != null) writeCsv(results);
+    }
+
+    private Result runOnce(FakeServer server, int n) {
+        Map<String, Object> cfg = new LinkedHashMap<>(overrides);
+        OpenEffectPlugin plugin = server.enable(cfg);
+        Random rnd = new Random(seed);
+        try {
+            List<FakePlayer> players = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                FakePlayer fp = server.join("sim" + i, server.at(rnd.nextDouble() * area, rnd.nextDouble() * area), rnd.nextDouble() < adminRatio);
+                int k = rnd.nextInt(4);
+                for (int j = 0; j < k; j++) fp.addEffect(randomEffect(rnd));
+                players.add(fp);
+            }
+            for (int t = 0; t < warmup; t++) step(server, players, rnd);
+
+            plugin.stats().reset();
+            server.drainCalls();
+            server.recordCalls(true);
+            long[] cpu = new long[ticks];
+            long allocTotal = 0;
+            for (int t = 0; t < ticks; t++) {
+                long c0 = threads.getCurrentThreadCpuTime();
+                long a0 = threads.getCurrentThreadAllocatedBytes();
+                step(server, players, rnd);
+                cpu[t] = threads.getCurrentThreadCpuTime() - c0;
+                allocTotal += threads.getCurrentThreadAllocatedBytes() - a0;
+            }
+            server.recordCalls(false);
+            Map<String, Long> calls = server.drainCalls();
+
+            Result r = new Result();
+            r.players = n;
+            Arrays.sort(cpu);
+            r.cpuAvg = Arrays.stream(cpu).average().orElse(0);
+            r.cpuP50 = cpu[cpu.length / 2];
+            r.cpuP95 = cpu[Math.min(cpu.length - 1, (int) (cpu.length * 0.95))];
+            r.cpuMax = cpu[cpu.length - 1];
+            r.allocPerTick = allocTotal / (double) ticks;
+            r.apiPerTick = calls.values().stream().mapToLong(Long::longValue).sum() / (double) ticks;
+            r.calls = calls;
+            r.displays = server.entityCount();
+            r.stats = plugin.stats().report();
+            return r;
+        } finally {
+            server.disable(plugin);
+        }
+    }
+
+    /** 1tick 分の負荷：歩く → 効果の増減 → 効果の残り時間 → サーバー tick */
+    private void step(FakeServer server, List<FakePlayer> players, Random rnd) {
+        for (FakePlayer fp : players) {
+            if (rnd.nextDouble() < moveRatio) {
+                Location to = fp.location();
+                double x = clamp(to.getX() + (rnd.nextDouble() - 0.5) * 0.6);
+                double z = clamp(to.getZ() + (rnd.nextDouble() - 0.5) * 0.6);
+                fp.moveTo(server.at(x, z));
+            }
+            if (rnd.nextDouble() < effectRate) {
+                if (fp.effectCount() > 0 && rnd.nextBoolean()) {
+                    fp.removeEffect(fp.player().getActivePotionEffects().iterator().next().getType());
+                } else {
+                    fp.addEffect(randomEffect(rnd));
+                }
+            }
+            fp.tickEffects();
+        }
+        server.tick();
+    }
+
+    private double clamp(double v) {
+        return Math.max(0, Math.min(area, v));
+    }
+
+    private static PotionEffect randomEffect(Random rnd) {
+        PotionEffectType type = TYPES[rnd.nextInt(TYPES.length)];
+        int duration = rnd.nextInt(10) == 0 ? PotionEffect.INFINITE_DURATION : 20 * (5 + rnd.nextInt(300));
+        return new PotionEffect(type, duration, rnd.nextInt(3));
+    }
+
+    private void writeCsv(List<Result> results) throws IOException {
+        if (csv.getParent() != null) Files.createDirectories(csv.getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+            out.println("players,cpu_avg_ns,cpu_p50_ns,cpu_p95_ns,cpu_max_ns,alloc_bytes_per_tick,api_calls_per_tick,displays");
+            for (Result r : results) {
+                out.printf(Locale.ROOT, "%d,%.0f,%d,%d,%d,%.0f,%.2f,%d%n",
+                        r.players, r.cpuAvg, r.cpuP50, r.cpuP95, r.cpuMax, r.allocPerTick, r.apiPerTick, r.displays);
+            }
+        }
+        System.out.println();
+        System.out.println("Wrote " + csv.toAbsolutePath());
+    }
+
+    private static final class Result {
+        int players;
+        double cpuAvg;
+        long cpuP50, cpuP95, cpuMax;
+        double allocPerTick;
+        double apiPerTick;
+        int displays;
+        Map<String, Long> calls;
+        List<String> stats;
+    }
+}
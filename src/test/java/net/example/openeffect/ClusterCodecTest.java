@@ -0,0 +1,96 @@
+package net.example.openeffect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterCodecTest {
+
+    private static final UUID A = new UUID(0x0123456789ABCDEFL, 0xFEDCBA9876543210L);
+    private static final UUID B = new UUID(-1L, 1L);
+
+    @Test
+    void dataRoundTrip() {
+        List<ClusterCodec.Op> ops = List.of(
+                ClusterCodec.Op.put("speed", 0, -1),                 // 無期限（zigzag で負の数）
+                ClusterCodec.Op.put("haste", 127, 127),              // varint 1バイトの上限
+                ClusterCodec.Op.put("jump_boost", 128, 128),         // 2バイト
+                ClusterCodec.Op.put("regeneration", 255, 16_384),    // 3バイト
+                ClusterCodec.Op.put("custom:thing", 1, Integer.MAX_VALUE),
+                ClusterCodec.Op.put("slowness", 0, Integer.MIN_VALUE),
+                ClusterCodec.Op.remove("poison"));
+        List<ClusterCodec.Entry> entries = List.of(
+                new ClusterCodec.Entry(ClusterCodec.FULL, A, "あいうえお_Steve", ops),
+                new ClusterCodec.Entry(ClusterCodec.DELTA, B, null, List.of(ClusterCodec.Op.remove("speed"))),
+                new ClusterCodec.Entry(ClusterCodec.LEAVE, A, null, List.of()));
+
+        ClusterCodec.Frame f = ClusterCodec.read(ClusterCodec.data("lobby-1", 1L << 40, entries));
+        assertEquals(ClusterCodec.VERSION, f.version());
+        assertEquals("lobby-1", f.node());
+        assertEquals(1L << 40, f.seq());
+        assertEquals(ClusterCodec.DATA, f.kind());
+        assertEquals(entries, f.entries());
+    }
+
+    @Test
+    void controlFramesRoundTrip() {
+        ClusterCodec.Frame hello = ClusterCodec.read(ClusterCodec.hello("a", 1, "b"));
+        assertEquals(ClusterCodec.HELLO, hello.kind());
+        assertEquals("b", hello.target());
+
+        ClusterCodec.Frame all = ClusterCodec.read(ClusterCodec.hello("a", 2, null));
+        assertEquals("", all.target());
+
+        ClusterCodec.Frame bye = ClusterCodec.read(ClusterCodec.bye("a", 3));
+        assertEquals(ClusterCodec.BYE, bye.kind());
+        assertEquals(3, bye.seq());
+
+        ClusterCodec.Frame reset = ClusterCodec.read(ClusterCodec.reset("a", 4, List.of(A, B)));
+        assertEquals(ClusterCodec.RESET, reset.kind());
+        assertEquals(List.of(A, B), reset.roster());
+    }
+
+    @Test
+    void truncatedFramesAreRejected() {
+        List<byte[]> frames = List.of(
+                ClusterCodec.data("node", 300, List.of(
+                        new ClusterCodec.Entry(ClusterCodec.FULL, A, "Steve", List.of(ClusterCodec.Op.put("speed", 1, 600))),
+                        new ClusterCodec.Entry(ClusterCodec.LEAVE, B, null, List.of()))),
+                ClusterCodec.hello("node", 1, "other"),
+                ClusterCodec.bye("node", 2),
+                ClusterCodec.reset("node", 3, List.of(A)));
+        for (byte[] frame : frames) {
+            for (int len = 0; len < frame.length; len++) {
+                byte[] cut = Arrays.copyOf(frame, len);
+                assertThrows(IllegalArgumentException.class, () -> ClusterCodec.read(cut), "length " + len);
+            }
+        }
+    }
+
+    @Test
+    void badFramesAreRejected() {
+        byte[] frame = ClusterCodec.bye("node", 1);
+        frame[0] = (byte) (ClusterCodec.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> ClusterCodec.read(frame));
+
+        // 残りのバイト数より大きい要素数
+        byte[] data = ClusterCodec.data("n", 1, List.of());
+        byte[] huge = Arrays.copyOf(data, data.length + 4);
+        huge[data.length - 1] = (byte) 0xFF;
+        huge[data.length] = (byte) 0xFF;
+        huge[data.length + 1] = (byte) 0x7F;
+        assertThrows(IllegalArgumentException.class, () -> ClusterCodec.read(huge));
+
+        // 終わらない varint
+        byte[] endless = new byte[16];
+        Arrays.fill(endless, (byte) 0x80);
+        endless[0] = ClusterCodec.VERSION;
+        endless[1] = 1;
+        endless[2] = 'n';
+        assertThrows(IllegalArgumentException.class, () -> ClusterCodec.read(endless));
+    }
+}
@@ -0,0 +1,118 @@
+package net.example.openeffect;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 2ノードを LocalClusterTransport で繋ぎ、差分・抜けからの全量の送り直し・退出を確かめる。
+ * 疑似サーバーは JVM に1つなので、両ノードとも同じオンライン一覧を見る（a から b への向きだけを検証する）。
+ */
+class ClusterViewTest {
+
+    /** publish を途中で捨てられる（フレームの取りこぼしの再現） */
+    private static final class Lossy implements ClusterTransport {
+        final ClusterTransport inner;
+        boolean drop;
+
+        Lossy(ClusterTransport inner) {
+            this.inner = inner;
+        }
+
+        @Override public void start(Consumer<byte[]> receiver) { inner.start(receiver); }
+        @Override public void publish(byte[] frame) { if (!drop) inner.publish(frame); }
+        @Override public void close() { inner.close(); }
+    }
+
+    private FakeServer server;
+    private OpenEffectPlugin plugin;
+    private Lossy toB;
+    private ClusterView a, b;
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.start();
+        plugin = server.enable(Map.of());
+        String channel = "test-" + UUID.randomUUID();
+        TaskRunner runner = new BukkitTaskRunner(plugin);
+        toB = new Lossy(new LocalClusterTransport(channel));
+        b = new ClusterView(plugin, runner, plugin.stats(), new LocalClusterTransport(channel), "b", 5, 15);
+        a = new ClusterView(plugin, runner, plugin.stats(), toB, "a", 5, 15);
+        b.start();
+        a.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        a.shutdown();
+        b.shutdown();
+        server.disable(plugin);
+    }
+
+    private static int amplifierOf(ClusterView.RemotePlayer rp, String type) {
+        for (ClusterView.RemoteEffect e : rp.effects()) if (e.type().equals(type)) return e.amplifier();
+        return -1;
+    }
+
+    @Test
+    void deltaResyncAndLeave() {
+        FakePlayer alice = server.join("alice", server.at(0, 0), false);
+        FakePlayer bob = server.join("bob", server.at(10, 0), false);
+        alice.addEffect(new PotionEffect(PotionEffectType.SPEED, 600, 0));
+
+        // 起動直後は全量
+        a.tick();
+        ClusterView.RemotePlayer rp = b.player(alice.id);
+        assertNotNull(rp);
+        assertEquals("a", rp.node());
+        assertEquals(0, amplifierOf(rp, "speed"));
+        assertNotNull(b.player(bob.id));
+
+        // 差分：レベルの変更だけが届く
+        alice.addEffect(new PotionEffect(PotionEffectType.SPEED, 600, 2));
+        a.markDirty(alice.id);
+        a.tick();
+        assertEquals(2, amplifierOf(b.player(alice.id), "speed"));
+
+        // bob の LEAVE を取りこぼす
+        server.quit(bob);
+        a.playerLeft(bob.id);
+        toB.drop = true;
+        a.tick();
+        toB.drop = false;
+        assertNotNull(b.player(bob.id), "取りこぼした LEAVE の分はまだ残っている");
+
+        // 次のフレームで抜けに気づき、b が全量を要求 → a が RESET から送り直す
+        alice.addEffect(new PotionEffect(PotionEffectType.SPEED, 600, 3));
+        a.markDirty(alice.id);
+        a.tick();
+        b.tick(); // 全量の要求（HELLO）は b の送信タイマーから出る
+        a.tick();
+        assertNull(b.player(bob.id), "RESET の一覧に無いプレイヤーは消える");
+        assertEquals(3, amplifierOf(b.player(alice.id), "speed"));
+
+        // 通常の退出
+        server.quit(alice);
+        a.playerLeft(alice.id);
+        a.tick();
+        assertNull(b.player(alice.id));
+    }
+
+    @Test
+    void byeDropsTheNode() {
+        FakePlayer alice = server.join("alice", server.at(0, 0), false);
+        a.tick();
+        assertNotNull(b.player(alice.id));
+        a.shutdown();
+        assertNull(b.player(alice.id));
+        server.quit(alice);
+    }
+}
@@ -0,0 +1,75 @@
+package net.example.openeffect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CountdownWheel：期限ちょうどの tick に1回だけ起こす（周回・取り消し・置き換え・遅れて呼ばれた時）。
+ */
+class CountdownWheelTest {
+
+    private static List<UUID> advance(CountdownWheel w, long now) {
+        List<UUID> out = new ArrayList<>();
+        w.advance(now, out);
+        return out;
+    }
+
+    @Test
+    void firesExactlyAtDueTick() {
+        CountdownWheel w = new CountdownWheel();
+        UUID a = UUID.randomUUID();
+        advance(w, 100);
+        w.schedule(a, 105);
+        for (long t = 101; t < 105; t++) assertEquals(List.of(), advance(w, t), "tick " + t);
+        assertEquals(List.of(a), advance(w, 105));
+        assertEquals(0, w.size());
+        assertEquals(List.of(), advance(w, 106));
+    }
+
+    @Test
+    void dueBeyondOneTurnWaitsForItsLap() {
+        CountdownWheel w = new CountdownWheel();
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        advance(w, 0);
+        w.schedule(a, 130); // 64 スロットを2周以上先（同じスロットに 2 と 66 も来る）
+        w.schedule(b, 2);
+        assertEquals(List.of(), advance(w, 1));
+        assertEquals(List.of(b), advance(w, 2));
+        for (long t = 3; t < 130; t++) assertEquals(List.of(), advance(w, t), "tick " + t);
+        assertEquals(List.of(a), advance(w, 130));
+    }
+
+    @Test
+    void cancelAndRescheduleKeepOnlyTheLatest() {
+        CountdownWheel w = new CountdownWheel();
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        advance(w, 10);
+        w.schedule(a, 12);
+        w.schedule(b, 12);
+        w.cancel(b);
+        w.schedule(a, 15); // 置き換え：12 の予約は無視される
+        assertEquals(1, w.size());
+        assertEquals(List.of(), advance(w, 14));
+        assertEquals(List.of(a), advance(w, 15));
+    }
+
+    @Test
+    void catchesUpAfterSkippedTicks() {
+        CountdownWheel w = new CountdownWheel();
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        advance(w, 0);
+        w.schedule(a, 5);
+        w.schedule(b, 40);
+        List<UUID> out = advance(w, 50); // 途中の tick を飛ばして呼ばれても取りこぼさない
+        assertEquals(2, out.size());
+        assertTrue(out.contains(a) && out.contains(b));
+
+        w.schedule(a, 20); // 処理済みの tick への予約は次の tick に回す
+        assertEquals(List.of(a), advance(w, 51));
+    }
+}
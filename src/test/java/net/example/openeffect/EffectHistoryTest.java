@@ -0,0 +1,84 @@
+package net.example.openeffect;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EffectHistory を同じフォルダで開き直しても、型・原因の名前が同じに戻ること（names.txt の番号）。
+ */
+class EffectHistoryTest {
+
+    private FakeServer server;
+    private OpenEffectPlugin plugin;
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.start();
+        plugin = server.enable(Map.of("history.enabled", false)); // プラグイン自身の履歴とフォルダを取り合わない
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disable(plugin);
+    }
+
+    private static List<EffectHistory.Entry> query(EffectHistory h, UUID player, int limit) throws Exception {
+        CompletableFuture<List<EffectHistory.Entry>> f = new CompletableFuture<>();
+        h.query(player, limit, f::complete);
+        return f.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void namesSurviveRestart() throws Exception {
+        UUID id = UUID.randomUUID();
+        EffectHistory h = new EffectHistory(plugin, 16, 1024, 4);
+        h.record(id, 1000, EffectHistory.Kind.APPLY, "speed", "COMMAND", 1, 600);
+        h.record(id, 2000, EffectHistory.Kind.EXPIRE, "haste", "EXPIRATION", 0, 0);
+        List<EffectHistory.Entry> before = query(h, id, 2);
+        h.shutdown();
+
+        EffectHistory reopened = new EffectHistory(plugin, 16, 1024, 4);
+        List<EffectHistory.Entry> after = query(reopened, id, 2); // リングは空なのでログから読む
+        assertEquals(before, after);
+        assertEquals(new EffectHistory.Entry(2000, EffectHistory.Kind.EXPIRE, "haste", "EXPIRATION", 0, 0), after.get(0));
+        assertEquals(new EffectHistory.Entry(1000, EffectHistory.Kind.APPLY, "speed", "COMMAND", 1, 600), after.get(1));
+
+        // 開き直した後の新しい名前は続きの番号になり、古い番号とずれない
+        reopened.record(id, 3000, EffectHistory.Kind.APPLY, "jump_boost", "COMMAND", 0, 200);
+        reopened.record(id, 4000, EffectHistory.Kind.REMOVE, "speed", "MILK", 1, 0);
+        List<EffectHistory.Entry> latest = query(reopened, id, 4);
+        assertEquals("speed", latest.get(0).type());
+        assertEquals("MILK", latest.get(0).cause());
+        assertEquals("jump_boost", latest.get(1).type());
+        assertEquals(after, latest.subList(2, 4));
+        reopened.shutdown();
+    }
+
+    @Test
+    void migratesNamesWithoutUnknownLine() throws Exception {
+        // 旧形式：番号 1 の "speed" が 0 行目に書かれている
+        Path dir = plugin.getDataFolder().toPath().resolve("history");
+        UUID id = UUID.randomUUID();
+        try (HistoryLog log = new HistoryLog(dir, 1024, 4)) {
+            log.append(1000, id, EffectHistory.pack(EffectHistory.Kind.APPLY, 1, 2, 0, 100));
+        }
+        Files.write(dir.resolve("names.txt"), List.of("speed", "COMMAND"), StandardCharsets.UTF_8);
+
+        EffectHistory h = new EffectHistory(plugin, 16, 1024, 4);
+        assertEquals(List.of(new EffectHistory.Entry(1000, EffectHistory.Kind.APPLY, "speed", "COMMAND", 0, 100)), query(h, id, 1));
+        assertEquals(List.of("?", "speed", "COMMAND"), Files.readAllLines(dir.resolve("names.txt"), StandardCharsets.UTF_8));
+        h.shutdown();
+    }
+}
@@ -0,0 +1,140 @@
+package net.example.openeffect;
+
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EffectSnapshots の version の約束：置いてから公開・残り時間だけの変化では進まない・退出は changedSince に出る。
+ * プラグインとは別に1つ作り、markDirty/tick/playerLeft を直接呼ぶ。
+ */
+class EffectSnapshotsTest {
+
+    private FakeServer server;
+    private OpenEffectPlugin plugin;
+    private EffectSnapshots snapshots;
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.start();
+        plugin = server.enable(Map.of());
+        snapshots = new EffectSnapshots(plugin, new BukkitTaskRunner(plugin));
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshots.clear();
+        server.disable(plugin);
+    }
+
+    /** 効果を変えてから1tick 進め、印を付けて読み直させる */
+    private void capture(FakePlayer fp) {
+        server.tick();
+        fp.tickEffects();
+        snapshots.markDirty(fp.id);
+        snapshots.tick();
+    }
+
+    private static boolean contains(Collection<EffectSnapshot> list, EffectSnapshot s) {
+        for (EffectSnapshot e : list) if (e == s) return true;
+        return false;
+    }
+
+    @Test
+    void versionIsPublishedAfterTheSnapshotIsStored() {
+        FakePlayer alice = server.join("alice", server.at(0, 0), false);
+        List<String> problems = new ArrayList<>();
+        snapshots.subscribe(s -> {
+            // 通知の時点で version() は s まで進んでいて、changedSince で s が見える
+            if (snapshots.version() < s.version()) problems.add("version() が遅れている: " + s.version());
+            if (!contains(snapshots.changedSince(s.version() - 1), s)) problems.add("changedSince に無い: " + s.version());
+        });
+        alice.addEffect(new PotionEffect(PotionEffectType.SPEED, 600, 0));
+        capture(alice);
+        alice.addEffect(new PotionEffect(PotionEffectType.HASTE, 600, 0));
+        capture(alice);
+        server.quit(alice);
+        snapshots.playerLeft(alice.id);
+        assertEquals(3, snapshots.version());
+        assertEquals(List.of(), problems);
+    }
+
+    @Test
+    void countdownDoesNotBumpButReapplyAndLevelDo() {
+        FakePlayer alice = server.join("alice", server.at(0, 0), false);
+        alice.addEffect(new PotionEffect(PotionEffectType.SPEED, 600, 0));
+        capture(alice);
+        EffectSnapshot first = snapshots.snapshot(alice.id);
+        assertNotNull(first);
+        long v = snapshots.version();
+
+        // 残り時間が減っただけ
+        for (int i = 0; i < 20; i++) capture(alice);
+        assertSame(first, snapshots.snapshot(alice.id));
+        assertEquals(v, snapshots.version());
+        assertTrue(snapshots.changedSince(v).isEmpty());
+
+        // 同じレベルで掛け直し（残り時間が戻る）
+        alice.addEffect(new PotionEffect(PotionEffectType.SPEED, 600, 0));
+        capture(alice);
+        assertEquals(v + 1, snapshots.version());
+        assertEquals(599, snapshots.snapshot(alice.id).get(PotionEffectType.SPEED).getDuration());
+
+        // レベルの変更
+        alice.addEffect(new PotionEffect(PotionEffectType.SPEED, 580, 1));
+        capture(alice);
+        assertEquals(v + 2, snapshots.version());
+        assertEquals(1, snapshots.snapshot(alice.id).get(PotionEffectType.SPEED).getAmplifier());
+        server.quit(alice);
+    }
+
+    @Test
+    void quitIsVisibleToPollers() {
+        FakePlayer alice = server.join("alice", server.at(0, 0), false);
+        alice.addEffect(new PotionEffect(PotionEffectType.SPEED, 600, 0));
+        capture(alice);
+        long before = snapshots.version();
+
+        server.quit(alice);
+        snapshots.playerLeft(alice.id);
+        assertNull(snapshots.snapshot(alice.id), "退出後は snapshot では見えない");
+        Collection<EffectSnapshot> changed = snapshots.changedSince(before);
+        assertEquals(1, changed.size());
+        EffectSnapshot gone = changed.iterator().next();
+        assertEquals(alice.id, gone.player());
+        assertFalse(gone.online());
+        assertTrue(gone.effects().isEmpty());
+
+        // 2回目の退出通知では何も起きない
+        snapshots.playerLeft(alice.id);
+        assertEquals(before + 1, snapshots.version());
+    }
+
+    @Test
+    void failingListenerDoesNotStopOthers() {
+        FakePlayer alice = server.join("alice", server.at(0, 0), false);
+        List<EffectSnapshot> got = new ArrayList<>();
+        snapshots.subscribe(s -> { throw new IllegalStateException("boom"); });
+        EffectSnapshotService.Subscription sub = snapshots.subscribe(got::add);
+
+        alice.addEffect(new PotionEffect(PotionEffectType.SPEED, 600, 0));
+        capture(alice);
+        assertEquals(1, got.size());
+        assertEquals(snapshots.version(), got.get(0).version());
+
+        sub.close();
+        alice.addEffect(new PotionEffect(PotionEffectType.SPEED, 600, 2));
+        capture(alice);
+        assertEquals(1, got.size(), "解除後は通知されない");
+        server.quit(alice);
+    }
+}
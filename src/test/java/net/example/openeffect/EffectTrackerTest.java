@@ -0,0 +1,81 @@
+package net.example.openeffect;
+
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EffectTracker：予約が「表示中の秒が変わる tick」「効果が切れる tick」に一致し、drain で1回だけ出てくること。
+ */
+class EffectTrackerTest {
+
+    @BeforeEach
+    void setUp() {
+        FakeServer.start(); // PotionEffectType の Registry
+    }
+
+    private static PotionEffect speed(int duration) {
+        return new PotionEffect(PotionEffectType.SPEED, duration, 0);
+    }
+
+    /** 残り d tick の効果について、秒表示（d / 20）が変わるか外れるまでの tick 数を1tickずつ数える */
+    private static long firstChange(int d) {
+        for (int k = 1; k <= d; k++) if ((d - k) / 20 != d / 20) return k;
+        return d + 1;
+    }
+
+    @Test
+    void nextChangeMatchesTheDisplayedSecond() {
+        for (int d = 0; d <= 200; d++) {
+            assertEquals(firstChange(d), EffectTracker.nextChangeIn(List.of(speed(d))), "duration " + d);
+        }
+        assertEquals(1, EffectTracker.nextChangeIn(List.of(speed(40))), "20 の倍数は次の tick で秒が変わる");
+        assertEquals(8, EffectTracker.nextChangeIn(List.of(speed(7))), "20 未満は切れる時");
+        assertEquals(-1, EffectTracker.nextChangeIn(List.of()));
+        PotionEffect infinite = new PotionEffect(PotionEffectType.SPEED, PotionEffect.INFINITE_DURATION, 0);
+        assertEquals(-1, EffectTracker.nextChangeIn(List.of(infinite)));
+        assertEquals(6, EffectTracker.nextChangeIn(List.of(infinite, speed(65), speed(125))), "一番早いもの");
+    }
+
+    @Test
+    void drainFiresOnTheScheduledTick() {
+        EffectTracker tracker = new EffectTracker(false);
+        UUID a = UUID.randomUUID();
+        tracker.drain(1000);
+        tracker.noteRendered(a, List.of(speed(65)), 1000); // 65 → 59 で秒が変わる：1006
+        for (long t = 1001; t < 1006; t++) assertEquals(List.of(), tracker.drain(t), "tick " + t);
+        assertEquals(List.of(a), tracker.drain(1006));
+
+        tracker.noteRendered(a, List.of(speed(3)), 1006); // 切れる時：1010
+        for (long t = 1007; t < 1010; t++) assertEquals(List.of(), tracker.drain(t), "tick " + t);
+        assertEquals(List.of(a), tracker.drain(1010));
+
+        tracker.noteRendered(a, List.of(), 1010); // 効果なし：予約しない
+        assertEquals(0, tracker.scheduledCount());
+        for (long t = 1011; t < 1100; t++) assertEquals(List.of(), tracker.drain(t));
+    }
+
+    @Test
+    void dirtyTargetCancelsItsReservation() {
+        EffectTracker tracker = new EffectTracker(false);
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        tracker.drain(0);
+        tracker.noteRendered(a, List.of(speed(40)), 0); // 予約は 1
+        tracker.noteRendered(b, List.of(speed(40)), 0);
+        tracker.markDirty(a);
+        List<UUID> out = tracker.drain(1);
+        assertEquals(2, out.size(), "dirty と予約が重なっても1回だけ");
+        assertTrue(out.contains(a) && out.contains(b));
+        assertEquals(0, tracker.scheduledCount(), "a の予約は取り消されている（描画で予約し直す）");
+
+        tracker.markDirty(b);
+        tracker.forget(b);
+        assertEquals(List.of(), tracker.drain(2), "forget で印も消える");
+    }
+}
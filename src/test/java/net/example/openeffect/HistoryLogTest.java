@@ -0,0 +1,112 @@
+package net.example.openeffect;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HistoryLog のセグメントの切り替え・古いものの削除・開き直し・Bloom フィルタでの読み飛ばし・新しい順の検索。
+ * segmentRecords は下限の 1024。
+ */
+class HistoryLogTest {
+
+    private static final int SEG = 1024;
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("openeffect-history");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.filter(p -> p.getFileName().toString().startsWith("seg-")).count();
+        }
+    }
+
+    @Test
+    void rotatesTrimsAndReopens() throws IOException {
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        int total = SEG * 4 + 100; // 5セグメント目の途中まで
+        HistoryLog log = new HistoryLog(dir, SEG, 3);
+        for (int i = 0; i < total; i++) log.append(i, i % 2 == 0 ? a : b, i);
+        long kept = SEG * 2 + 100; // 古い2つは消える
+        assertEquals(kept, log.size());
+        assertEquals(3, segmentFiles());
+        log.close();
+
+        // 開き直すと書きかけのセグメント（count はヘッダ）の続きから書く
+        log = new HistoryLog(dir, SEG, 3);
+        assertEquals(kept, log.size());
+        log.append(total, a, total);
+        assertEquals(kept + 1, log.size());
+        assertEquals(3, segmentFiles(), "満杯でなければ新しいセグメントは作らない");
+
+        // 新しい順に、セグメントをまたいで返る
+        int limit = SEG + 10;
+        long[] times = new long[limit], packed = new long[limit];
+        int n = log.scan(a, times, packed, limit);
+        assertEquals(limit, n);
+        assertEquals(total, times[0]);
+        for (int i = 1; i < n; i++) {
+            assertEquals(times[i - 1] - 2, times[i], "a の分だけ、1つ前（新しい方）から順に");
+            assertEquals(times[i], packed[i]);
+        }
+
+        // 全部読むと残っている分だけ（消えたセグメントの分は返らない）
+        limit = total;
+        times = new long[limit];
+        packed = new long[limit];
+        n = log.scan(b, times, packed, limit);
+        assertEquals(SEG + 50, n);
+        assertEquals(total - 1, times[0]);
+        assertEquals(total - 1 - 2L * (n - 1), times[n - 1]);
+        assertEquals(0, log.scan(UUID.randomUUID(), times, packed, limit));
+        log.close();
+    }
+
+    @Test
+    void skipsSegmentsByBloomFilter() throws IOException {
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        HistoryLog log = new HistoryLog(dir, SEG, 4);
+        for (int i = 0; i < SEG; i++) log.append(i, a, i);      // 1つ目：a だけ
+        for (int i = 0; i < 10; i++) log.append(SEG + i, b, i); // 2つ目：b だけ
+        long[] times = new long[SEG], packed = new long[SEG];
+        assertEquals(SEG, log.scan(a, times, packed, SEG));
+        log.close();
+
+        // 1つ目の Bloom フィルタ（ヘッダの 1024 バイト目から）を消すと、a のレコードがあっても読まずに飛ばす
+        Path first;
+        try (Stream<Path> s = Files.list(dir)) {
+            first = s.filter(p -> p.getFileName().toString().startsWith("seg-")).sorted().findFirst().orElseThrow();
+        }
+        try (FileChannel ch = FileChannel.open(first, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(1024), 1024);
+        }
+        log = new HistoryLog(dir, SEG, 4);
+        assertEquals(0, log.scan(a, times, packed, SEG));
+        assertEquals(10, log.scan(b, times, packed, SEG));
+        assertEquals(SEG + 10, log.size());
+        log.close();
+    }
+}
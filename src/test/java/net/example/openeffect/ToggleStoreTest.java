@@ -0,0 +1,143 @@
+package net.example.openeffect;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ToggleStore：debounce してから書き込みスレッドで toggles.yml へ・停止時の同期保存・config.yml の旧リストからの引き継ぎ。
+ * プラグイン本体の toggles.yml と取り合わないよう、データフォルダだけを持つ疑似プラグインで動かす。
+ */
+class ToggleStoreTest {
+
+    private static final int DEBOUNCE_TICKS = 40;
+
+    private FakeServer server;
+    private Path dir;
+    private Plugin plugin;
+    private TaskRunner runner;
+    private final Stats stats = new Stats();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = FakeServer.start();
+        dir = Files.createTempDirectory("openeffect-toggles");
+        File folder = dir.toFile();
+        Logger logger = Logger.getLogger("ToggleStoreTest");
+        plugin = FakeServer.proxy(Plugin.class, (p, m, a) -> switch (m.getName()) {
+            case "getDataFolder" -> folder;
+            case "getLogger" -> logger;
+            case "getName" -> "ToggleStoreTest";
+            case "isEnabled" -> true;
+            default -> FakeServer.objectMethod(p, m, a, "ToggleStoreTest");
+        });
+        runner = new BukkitTaskRunner(plugin);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    private File file() {
+        return dir.resolve("toggles.yml").toFile();
+    }
+
+    private void waitForFile() throws InterruptedException {
+        for (int i = 0; i < 500 && !file().exists(); i++) Thread.sleep(10);
+        assertTrue(file().exists(), "書き込みスレッドが保存していない");
+    }
+
+    private ToggleStore reload(YamlConfiguration legacy) {
+        ToggleStore s = new ToggleStore(plugin, runner, stats);
+        s.load(legacy);
+        return s;
+    }
+
+    @Test
+    void debouncedWriteRoundTrips() throws Exception {
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        ToggleStore store = reload(new YamlConfiguration()); // toggles.yml が無いので保存を予約する
+
+        assertTrue(store.toggle(ToggleStore.Kind.OVERHEAD, a));
+        for (int i = 0; i < DEBOUNCE_TICKS / 2; i++) server.tick();
+        store.enable(ToggleStore.Kind.HUD, b); // 予約中の変更は同じ書き込みにまとまる
+        for (int i = DEBOUNCE_TICKS / 2; i < DEBOUNCE_TICKS - 1; i++) server.tick();
+        Thread.sleep(50);
+        assertFalse(file().exists(), "debounce の間は書かない");
+
+        server.tick();
+        waitForFile();
+        YamlConfiguration saved = YamlConfiguration.loadConfiguration(file());
+        assertEquals(List.of(a.toString()), saved.getStringList("enabledOverhead"));
+        assertEquals(List.of(b.toString()), saved.getStringList("enabledHud"));
+        assertFalse(dir.resolve("toggles.yml.tmp").toFile().exists(), "一時ファイルは置き換えで消える");
+
+        ToggleStore again = reload(new YamlConfiguration());
+        assertEquals(Set.of(a), again.view(ToggleStore.Kind.OVERHEAD));
+        assertEquals(Set.of(b), again.view(ToggleStore.Kind.HUD));
+        assertTrue(again.view(ToggleStore.Kind.SELF_OVERHEAD).isEmpty());
+        store.shutdown();
+        again.shutdown();
+    }
+
+    @Test
+    void shutdownWritesPendingChanges() {
+        UUID a = UUID.randomUUID();
+        ToggleStore store = reload(new YamlConfiguration());
+        store.enable(ToggleStore.Kind.SELF_OVERHEAD, a);
+        assertTrue(store.toggle(ToggleStore.Kind.HUD, a));
+        assertFalse(store.toggle(ToggleStore.Kind.HUD, a)); // 反転して元に戻る
+        store.shutdown(); // 予約の tick を待たずに同期で書く
+        assertTrue(file().exists());
+
+        ToggleStore again = reload(new YamlConfiguration());
+        assertEquals(Set.of(a), again.view(ToggleStore.Kind.SELF_OVERHEAD));
+        assertTrue(again.view(ToggleStore.Kind.HUD).isEmpty());
+        again.shutdown();
+    }
+
+    @Test
+    void migratesListsFromLegacyConfig() throws Exception {
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        YamlConfiguration legacy = new YamlConfiguration();
+        legacy.set("enabledOverhead", List.of(a.toString(), "not-a-uuid"));
+        legacy.set("enabledSelfOverhead", List.of(a.toString()));
+        legacy.set("enabledHud", List.of(b.toString()));
+
+        ToggleStore store = reload(legacy);
+        assertEquals(Set.of(a), store.view(ToggleStore.Kind.OVERHEAD), "読めない行は捨てる");
+        assertEquals(Set.of(a), store.view(ToggleStore.Kind.SELF_OVERHEAD));
+        assertEquals(Set.of(b), store.view(ToggleStore.Kind.HUD));
+
+        // 引き継いだ内容は toggles.yml に書き出される
+        for (int i = 0; i < DEBOUNCE_TICKS; i++) server.tick();
+        waitForFile();
+
+        // 以降は toggles.yml が正で、config.yml の古いリストは見ない
+        YamlConfiguration stale = new YamlConfiguration();
+        stale.set("enabledOverhead", List.of(b.toString()));
+        ToggleStore again = reload(stale);
+        assertEquals(Set.of(a), again.view(ToggleStore.Kind.OVERHEAD));
+        assertEquals(Set.of(b), again.view(ToggleStore.Kind.HUD));
+        store.shutdown();
+        again.shutdown();
+    }
+}
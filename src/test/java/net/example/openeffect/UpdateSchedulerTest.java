@@ -0,0 +1,101 @@
+package net.example.openeffect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UpdateScheduler：予算 0 は無制限・予算を超えた分は順番を保って次の tick へ・よく変わる target が先・decay で戻る。
+ */
+class UpdateSchedulerTest {
+
+    private static List<UUID> ids(int n) {
+        List<UUID> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) out.add(UUID.randomUUID());
+        return out;
+    }
+
+    private static void spin(long nanos) {
+        long t0 = System.nanoTime();
+        while (System.nanoTime() - t0 < nanos) Thread.onSpinWait();
+    }
+
+    @Test
+    void zeroBudgetIsUnlimited() {
+        UpdateScheduler s = new UpdateScheduler(0);
+        List<UUID> all = ids(100);
+        s.offerAll(all);
+        s.offerAll(all); // 重複は積まない
+        List<UUID> done = new ArrayList<>();
+        assertEquals(100, s.run(done::add, Long.MAX_VALUE / 2)); // 使用済みの時間も関係ない
+        assertEquals(all, done);
+        assertEquals(0, s.backlog());
+    }
+
+    @Test
+    void exhaustedBudgetCarriesOverInOrder() {
+        UpdateScheduler s = new UpdateScheduler(1000);
+        List<UUID> all = ids(3);
+        s.offerAll(all);
+        List<UUID> done = new ArrayList<>();
+        // 位置合わせで予算を使い切った tick でも最低1件は進む
+        for (int tick = 0; tick < 3; tick++) {
+            assertEquals(1, s.run(done::add, 1_000_000));
+            assertEquals(2 - tick, s.backlog());
+        }
+        assertEquals(all, done);
+        assertEquals(0, s.run(done::add, 1_000_000));
+    }
+
+    @Test
+    void smallBudgetSplitsWorkAcrossTicks() {
+        UpdateScheduler s = new UpdateScheduler(20_000); // 20ms
+        List<UUID> all = ids(6);
+        s.offerAll(all);
+        List<UUID> done = new ArrayList<>();
+        int first = s.run(id -> { spin(12_000_000); done.add(id); }); // 2件目で予算を超える
+        assertEquals(2, first);
+        assertEquals(4, s.backlog());
+        s.offer(all.get(0)); // 処理済みのものは後ろに並び直す
+        while (s.backlog() > 0) s.run(done::add);
+        List<UUID> expected = new ArrayList<>(all);
+        expected.add(all.get(0));
+        assertEquals(expected, done);
+    }
+
+    @Test
+    void hotTargetsAreServedFirstButNormalOnesStillProgress() {
+        UpdateScheduler s = new UpdateScheduler(0);
+        List<UUID> normal = ids(2), hot = ids(4);
+        for (UUID h : hot) for (int i = 0; i < 4; i++) s.noteChanged(h);
+        s.offerAll(normal);
+        s.offerAll(hot);
+        List<UUID> done = new ArrayList<>();
+        s.run(done::add);
+        // 優先行列を3件処理するごとに通常行列を1件
+        assertEquals(List.of(hot.get(0), hot.get(1), hot.get(2), normal.get(0), hot.get(3), normal.get(1)), done);
+
+        // decay で heat が半減すると通常の扱いに戻る（到着順）
+        s.decay();
+        done.clear();
+        s.offer(normal.get(0));
+        s.offer(hot.get(0));
+        s.run(done::add);
+        assertEquals(List.of(normal.get(0), hot.get(0)), done);
+    }
+
+    @Test
+    void forgetDropsQueuedTarget() {
+        UpdateScheduler s = new UpdateScheduler(0);
+        List<UUID> all = ids(3);
+        s.offerAll(all);
+        s.forget(all.get(1));
+        List<UUID> done = new ArrayList<>();
+        s.run(done::add);
+        assertEquals(List.of(all.get(0), all.get(2)), done);
+    }
+}
@@ -0,0 +1,123 @@
+package net.example.openeffect;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Display.Billboard;
+import org.bukkit.plugin.ServicePriority;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static net.example.openeffect.RecordingPacketSink.Kind.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VirtualDisplayBackend のパケットの宛先（show された viewer だけに送るか）を RecordingPacketSink で確かめる。
+ */
+class VirtualDisplayBackendTest {
+
+    private FakeServer server;
+    private RecordingPacketSink sink;
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.start();
+        sink = new RecordingPacketSink();
+    }
+
+    @Test
+    void sendsOnlyToShownViewers() {
+        FakePlayer target = server.join("target", server.at(0, 0), false);
+        FakePlayer shown = server.join("shown", server.at(2, 0), false);
+        FakePlayer other = server.join("other", server.at(4, 0), false);
+        try {
+            VirtualDisplayBackend backend = new VirtualDisplayBackend(sink, Billboard.CENTER, 0);
+            OverheadDisplay td = backend.spawn(target.player(), server.at(0, 0));
+            assertTrue(sink.packets().isEmpty(), "spawn だけでは誰にも送らない");
+
+            td.show(shown.player());
+            assertEquals(1, sink.to(shown.id, SPAWN).size());
+            assertEquals(1, sink.to(shown.id, METADATA).size());
+
+            td.setText("速度 I 0:30");
+            td.moveTo(server.at(1, 0));
+            assertEquals(2, sink.to(shown.id, METADATA).size());
+            assertEquals("速度 I 0:30", sink.to(shown.id, METADATA).get(1).meta().text());
+            assertEquals(1, sink.to(shown.id, MOVE).size());
+            assertTrue(sink.to(other.id).isEmpty(), "show していない viewer には何も送らない");
+            assertTrue(sink.to(target.id).isEmpty());
+
+            td.show(shown.player()); // 送信済みなら送り直さない
+            assertEquals(1, sink.to(shown.id, SPAWN).size());
+
+            td.hide(shown.player());
+            assertEquals(1, sink.to(shown.id, DESTROY).size());
+            sink.clear();
+            td.setText("x");
+            td.moveTo(server.at(2, 0));
+            assertTrue(sink.packets().isEmpty(), "hide 後は誰にも送らない");
+        } finally {
+            server.quit(target);
+            server.quit(shown);
+            server.quit(other);
+        }
+    }
+
+    @Test
+    void viewerQuitAndResetFollowPolicy() {
+        FakePlayer target = server.join("target", server.at(0, 0), false);
+        FakePlayer viewer = server.join("viewer", server.at(2, 0), false);
+        try {
+            VirtualDisplayBackend backend = new VirtualDisplayBackend(sink, Billboard.CENTER, 0);
+            OverheadDisplay td = backend.spawn(target.player(), server.at(0, 0));
+            td.show(viewer.player());
+
+            backend.viewerReset(viewer.player()); // クライアント側で消えた → 送り直す
+            assertEquals(2, sink.to(viewer.id, SPAWN).size());
+
+            backend.viewerQuit(viewer.id);
+            sink.clear();
+            td.setText("x");
+            backend.viewerReset(viewer.player());
+            assertTrue(sink.packets().isEmpty(), "退出した viewer には送らない");
+
+            td.show(viewer.player());
+            td.remove();
+            assertEquals(1, sink.to(viewer.id, DESTROY).size());
+            sink.clear();
+            td.show(viewer.player());
+            assertTrue(sink.packets().isEmpty(), "remove 後は送らない");
+        } finally {
+            server.quit(target);
+            server.quit(viewer);
+        }
+    }
+
+    /** プラグイン経由：頭上表示を見られる（管理者・近く）viewer にだけ届く */
+    @Test
+    void pluginSendsOnlyToEligibleNearbyViewers() {
+        Bukkit.getServicesManager().register(PacketSink.class, sink, null, ServicePriority.Normal);
+        OpenEffectPlugin plugin = server.enable(Map.of("displayBackend", "virtual", "viewRadius", 64));
+        try {
+            FakePlayer admin = server.join("admin", server.at(0, 0), true);
+            FakePlayer admin2 = server.join("admin2", server.at(8, 0), true);
+            FakePlayer member = server.join("member", server.at(4, 4), false);
+            FakePlayer far = server.join("far", server.at(1000, 1000), true);
+            for (int i = 0; i < 5; i++) server.tick();
+
+            assertTrue(sink.to(member.id).isEmpty(), "権限の無い viewer には送らない");
+            assertFalse(sink.to(admin.id, SPAWN).isEmpty());
+            assertFalse(sink.to(admin2.id, SPAWN).isEmpty());
+            for (FakePlayer v : new FakePlayer[]{admin, admin2, far}) {
+                Location me = v.location();
+                for (RecordingPacketSink.Packet p : sink.to(v.id, SPAWN)) {
+                    double dx = p.at().getX() - me.getX(), dz = p.at().getZ() - me.getZ();
+                    assertTrue(dx * dx + dz * dz < 64 * 64, v.name + " に viewRadius の外の表示が届いた");
+                }
+            }
+        } finally {
+            server.disable(plugin);
+        }
+    }
+}
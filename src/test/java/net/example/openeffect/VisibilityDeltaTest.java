@@ -0,0 +1,94 @@
+package net.example.openeffect;
+
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 1人の viewer の可視性を切り替えた時、変わった組の分だけ showEntity/hideEntity が呼ばれること
+ * （疑似サーバーの API 呼び出し回数で確かめる）。
+ */
+class VisibilityDeltaTest {
+
+    private static final int TARGETS = 8;
+
+    private FakeServer server;
+    private OpenEffectPlugin plugin;
+    private FakePlayer viewer;
+    private final List<FakePlayer> targets = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        server = FakeServer.start();
+        plugin = server.enable(Map.of());
+        for (int i = 0; i < TARGETS; i++) targets.add(server.join("t" + i, server.at(i * 4, 0), false));
+        viewer = server.join("viewer", server.at(0, 0), true); // 管理者は自分の頭上も見る
+        server.tick();
+        server.recordCalls(true);
+        server.drainCalls();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.recordCalls(false);
+        for (FakePlayer fp : targets) server.quit(fp);
+        targets.clear();
+        server.quit(viewer);
+        server.disable(plugin);
+    }
+
+    private long calls(Map<String, Long> calls, String name) {
+        return calls.getOrDefault(name, 0L);
+    }
+
+    /** 権限の変更を通知する（コマンド一覧の再送 = 権限の確認し直し） */
+    private void setAdmin(boolean admin) {
+        viewer.admin = admin;
+        server.callEvent(new PlayerCommandSendEvent(viewer.player(), new ArrayList<>()));
+    }
+
+    @Test
+    void togglingOneViewerSendsOnlyTheDelta() {
+        plugin.displays().applyVisibility(viewer.player());
+        Map<String, Long> c = server.drainCalls();
+        assertEquals(0, calls(c, "Player.showEntity"), "変化が無ければ呼ばない");
+        assertEquals(0, calls(c, "Player.hideEntity"));
+
+        setAdmin(false);
+        c = server.drainCalls();
+        assertEquals(TARGETS + 1, calls(c, "Player.hideEntity"), "近くの target と自分の分だけ");
+        assertEquals(0, calls(c, "Player.showEntity"));
+
+        setAdmin(false); // 変化なし
+        c = server.drainCalls();
+        assertEquals(0, calls(c, "Player.hideEntity"));
+
+        setAdmin(true);
+        c = server.drainCalls();
+        assertEquals(TARGETS + 1, calls(c, "Player.showEntity"));
+        assertEquals(0, calls(c, "Player.hideEntity"));
+    }
+
+    @Test
+    void movingTargetsOutOfRangeHidesOnlyThem() {
+        targets.get(0).moveTo(server.at(1000, 0));
+        targets.get(1).moveTo(server.at(0, 1000));
+        server.tick(); // 移動は tick の終わりにまとめて反映
+        Map<String, Long> c = server.drainCalls();
+        assertEquals(2, calls(c, "Player.hideEntity"));
+        assertEquals(0, calls(c, "Player.showEntity"));
+
+        targets.get(0).moveTo(server.at(8, 8));
+        server.tick();
+        c = server.drainCalls();
+        assertEquals(1, calls(c, "Player.showEntity"));
+        assertEquals(0, calls(c, "Player.hideEntity"));
+    }
+}
@@ -0,0 +1,99 @@
+package net.example.openeffect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VisibilityState：両方向の BitSet が揃うこと・変わった時だけ set が true になること・返却したスロットの再利用。
+ */
+class VisibilityStateTest {
+
+    private static BitSet bits(int... on) {
+        BitSet b = new BitSet();
+        for (int i : on) b.set(i);
+        return b;
+    }
+
+    @Test
+    void setKeepsBothDirectionsAndReportsChanges() {
+        VisibilityState vis = new VisibilityState();
+        int v = vis.slot(UUID.randomUUID()), t1 = vis.slot(UUID.randomUUID()), t2 = vis.slot(UUID.randomUUID());
+        assertTrue(vis.set(v, t1, true));
+        assertFalse(vis.set(v, t1, true), "同じ状態なら変化なし（show を2回呼ばない）");
+        assertTrue(vis.set(v, t2, true));
+
+        BitSet out = new BitSet();
+        vis.copyShown(v, out);
+        assertEquals(bits(t1, t2), out);
+        vis.copyVisible(t1, out);
+        assertEquals(bits(v), out);
+        assertTrue(vis.isShown(v, t1));
+        assertTrue(vis.hasViewers(t2));
+
+        assertTrue(vis.set(v, t1, false));
+        assertFalse(vis.set(v, t1, false));
+        assertFalse(vis.hasViewers(t1));
+        vis.copyShown(v, out);
+        assertEquals(bits(t2), out);
+    }
+
+    @Test
+    void clearTargetAndViewer() {
+        VisibilityState vis = new VisibilityState();
+        int a = vis.slot(UUID.randomUUID()), b = vis.slot(UUID.randomUUID()), t = vis.slot(UUID.randomUUID());
+        vis.set(a, t, true);
+        vis.set(b, t, true);
+        vis.set(a, b, true);
+
+        vis.clearTarget(t); // t の表示を作り直した
+        assertFalse(vis.hasViewers(t));
+        assertFalse(vis.isShown(a, t));
+        assertFalse(vis.isShown(b, t));
+        assertTrue(vis.isShown(a, b), "他の組はそのまま");
+
+        vis.clearViewer(a); // a が見ていたものを全部外す
+        assertFalse(vis.hasViewers(b));
+    }
+
+    @Test
+    void releasedSlotIsReusedClean() {
+        VisibilityState vis = new VisibilityState();
+        UUID viewer = UUID.randomUUID(), gone = UUID.randomUUID(), other = UUID.randomUUID();
+        int v = vis.slot(viewer), g = vis.slot(gone), o = vis.slot(other);
+        vis.set(v, g, true);
+        vis.set(g, o, true);
+        vis.set(o, g, true);
+
+        vis.release(gone);
+        assertEquals(-1, vis.slotIfPresent(gone));
+        assertNull(vis.idAt(g));
+        assertFalse(vis.isShown(v, g), "返却した target は誰にも表示中でない");
+        assertFalse(vis.hasViewers(o), "返却した viewer の表示も消える");
+        assertEquals(2, vis.size());
+
+        // 空いたスロットは次の人に詰めて渡され、前の持ち主の状態は引き継がない
+        UUID next = UUID.randomUUID();
+        assertEquals(g, vis.slot(next));
+        assertEquals(next, vis.idAt(g));
+        assertFalse(vis.hasViewers(g));
+        BitSet out = new BitSet();
+        vis.copyShown(g, out);
+        assertTrue(out.isEmpty());
+        assertEquals(v, vis.slot(viewer), "既存のスロットは変わらない");
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        VisibilityState vis = new VisibilityState();
+        int v = vis.slot(UUID.randomUUID());
+        int last = -1;
+        for (int i = 0; i < 200; i++) last = vis.slot(UUID.randomUUID());
+        assertEquals(200, last);
+        assertTrue(vis.set(v, last, true));
+        assertTrue(vis.hasViewers(last));
+    }
+}
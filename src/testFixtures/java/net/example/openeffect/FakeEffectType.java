@@ -0,0 +1,60 @@
+package net.example.openeffect;
+
+import org.bukkit.Color;
+import org.bukkit.FeatureFlag;
+import org.bukkit.NamespacedKey;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+import org.bukkit.potion.PotionEffectTypeCategory;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 疑似サーバー用の効果の型（Registry の要求に応じてキーごとに作られる）。
+ * 表示に使う getKey/getName 以外は固定値。API の版で抽象メソッドが増減しても壊れないよう @Override は付けない。
+ */
+@SuppressWarnings({"deprecation", "removal"})
+public final class FakeEffectType extends PotionEffectType {
+
+    private static final AtomicInteger IDS = new AtomicInteger(1);
+
+    private final NamespacedKey key;
+    private final int id = IDS.getAndIncrement();
+
+    public FakeEffectType(NamespacedKey key) {
+        this.key = key;
+    }
+
+    public NamespacedKey getKey() { return key; }
+
+    public String getName() { return key.getKey().toUpperCase(Locale.ROOT); }
+
+    public int getId() { return id; }
+
+    public boolean isInstant() { return false; }
+
+    public Color getColor() { return Color.WHITE; }
+
+    public double getDurationModifier() { return 1.0; }
+
+    public PotionEffectTypeCategory getCategory() { return PotionEffectTypeCategory.NEUTRAL; }
+
+    public Category getEffectCategory() { return Category.NEUTRAL; }
+
+    public Map<Attribute, AttributeModifier> getEffectAttributes() { return Map.of(); }
+
+    public double getAttributeModifierAmount(Attribute attribute, int effectAmplifier) { return 0; }
+
+    public PotionEffect createEffect(int duration, int amplifier) { return new PotionEffect(this, duration, amplifier); }
+
+    public String getTranslationKey() { return "effect.minecraft." + key.getKey(); }
+
+    public String translationKey() { return getTranslationKey(); }
+
+    public Set<FeatureFlag> requiredFeatures() { return Set.of(); }
+}
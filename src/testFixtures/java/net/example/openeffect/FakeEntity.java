@@ -0,0 +1,83 @@
+package net.example.openeffect;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.TextDisplay;
+import org.bukkit.util.Transformation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 疑似 TextDisplay。位置・テキスト・乗車先・生死だけを記録する。
+ */
+public final class FakeEntity implements InvocationHandler {
+
+    private final FakeServer server;
+    final UUID uuid = UUID.randomUUID();
+    final int entityId;
+    final TextDisplay entity;
+
+    Location location;
+    Entity vehicle;
+    Object text;
+    Transformation transformation;
+    boolean dead;
+
+    FakeEntity(FakeServer server, int entityId, Location at) {
+        this.server = server;
+        this.entityId = entityId;
+        this.location = at.clone();
+        this.entity = FakeServer.proxy(TextDisplay.class, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method m, Object[] args) {
+        server.record("TextDisplay", m);
+        switch (m.getName()) {
+            case "getUniqueId": return uuid;
+            case "getEntityId": return entityId;
+            case "getLocation": return location.clone();
+            case "getWorld": return location.getWorld();
+            case "isDead": return dead;
+            case "isValid": return !dead;
+            case "remove":
+                dead = true;
+                leave();
+                server.entities.remove(uuid);
+                return null;
+            case "teleport":
+                location = ((Location) args[0]).clone();
+                return true;
+            case "teleportAsync":
+                location = ((Location) args[0]).clone();
+                return CompletableFuture.completedFuture(true);
+            case "getVehicle": return vehicle;
+            case "isInsideVehicle": return vehicle != null;
+            case "leaveVehicle": return leave();
+            case "setText":
+                text = args[0];
+                return null;
+            case "text":
+                if (args == null || args.length == 0) return text;
+                text = args[0];
+                return null;
+            case "getText": return text instanceof String s ? s : null;
+            case "setTransformation":
+                transformation = (Transformation) args[0];
+                return null;
+            case "getTransformation": return transformation;
+            default: return FakeServer.objectMethod(proxy, m, args, "FakeTextDisplay#" + entityId);
+        }
+    }
+
+    private boolean leave() {
+        if (vehicle == null) return false;
+        if (Proxy.getInvocationHandler(vehicle) instanceof FakePlayer fp) fp.dropPassenger(entity);
+        vehicle = null;
+        return true;
+    }
+}
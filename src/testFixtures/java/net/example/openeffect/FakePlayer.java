@@ -0,0 +1,158 @@
+package net.example.openeffect;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.EntityPotionEffectEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * 疑似プレイヤー。位置・効果・乗客・権限だけを持ち、残りの API は既定値を返す。
+ * 効果の残り時間は tickEffects() で減らす（サーバーの効果 tick の代わり）。
+ */
+public final class FakePlayer implements InvocationHandler {
+
+    static final double EYE_HEIGHT = 1.62;
+    static final double HEIGHT = 1.8;
+
+    private final FakeServer server;
+    final UUID id = UUID.randomUUID();
+    final String name;
+    final int entityId;
+    final Player player;
+    boolean admin;
+    boolean online = true;
+
+    private Location location;
+    private final Map<PotionEffectType, PotionEffect> effects = new LinkedHashMap<>();
+    private final List<Entity> passengers = new ArrayList<>();
+    long actionBars;
+
+    FakePlayer(FakeServer server, String name, int entityId, Location at, boolean admin) {
+        this.server = server;
+        this.name = name;
+        this.entityId = entityId;
+        this.location = at.clone();
+        this.admin = admin;
+        this.player = FakeServer.proxy(Player.class, this);
+    }
+
+    public Player player() {
+        return player;
+    }
+
+    public Location location() {
+        return location.clone();
+    }
+
+    /** PlayerMoveEvent を発火して移動する */
+    public void moveTo(Location to) {
+        Location from = location.clone();
+        PlayerMoveEvent e = new PlayerMoveEvent(player, from, to.clone());
+        server.callEvent(e);
+        if (!e.isCancelled()) location = to.clone();
+    }
+
+    /** EntityPotionEffectEvent を発火して効果を付与/上書きする */
+    public void addEffect(PotionEffect eff) {
+        PotionEffect old = effects.get(eff.getType());
+        EntityPotionEffectEvent e = new EntityPotionEffectEvent(player, old, eff, EntityPotionEffectEvent.Cause.PLUGIN,
+                old == null ? EntityPotionEffectEvent.Action.ADDED : EntityPotionEffectEvent.Action.CHANGED, true);
+        server.callEvent(e);
+        if (!e.isCancelled()) effects.put(eff.getType(), eff);
+    }
+
+    public void removeEffect(PotionEffectType type) {
+        PotionEffect old = effects.get(type);
+        if (old == null) return;
+        EntityPotionEffectEvent e = new EntityPotionEffectEvent(player, old, null, EntityPotionEffectEvent.Cause.PLUGIN,
+                EntityPotionEffectEvent.Action.REMOVED, false);
+        server.callEvent(e);
+        if (!e.isCancelled()) effects.remove(type);
+    }
+
+    /** 1tick 分、効果の残り時間を減らす（切れた効果は EXPIRATION で外す） */
+    public void tickEffects() {
+        if (effects.isEmpty()) return;
+        for (Iterator<PotionEffect> it = effects.values().iterator(); it.hasNext(); ) {
+            PotionEffect eff = it.next();
+            if (eff.isInfinite()) continue;
+            if (eff.getDuration() <= 1) {
+                server.callEvent(new EntityPotionEffectEvent(player, eff, null, EntityPotionEffectEvent.Cause.EXPIRATION,
+                        EntityPotionEffectEvent.Action.REMOVED, false));
+                it.remove();
+            }
+        }
+        effects.replaceAll((t, eff) -> eff.isInfinite() ? eff : eff.withDuration(eff.getDuration() - 1));
+    }
+
+    public int effectCount() {
+        return effects.size();
+    }
+
+    public long actionBars() {
+        return actionBars;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method m, Object[] args) {
+        server.record("Player", m);
+        switch (m.getName()) {
+            case "getUniqueId": return id;
+            case "getName": return name;
+            case "isOnline":
+            case "isValid":
+                return online;
+            case "isDead": return !online;
+            case "getEntityId": return entityId;
+            case "getLocation":
+                if (args != null && args.length == 1 && args[0] instanceof Location out) {
+                    out.setWorld(location.getWorld());
+                    out.set(location.getX(), location.getY(), location.getZ());
+                    out.setYaw(location.getYaw());
+                    out.setPitch(location.getPitch());
+                    return out;
+                }
+                return location.clone();
+            case "getEyeLocation": return location.clone().add(0, EYE_HEIGHT, 0);
+            case "getEyeHeight": return EYE_HEIGHT;
+            case "getHeight": return HEIGHT;
+            case "getWorld": return location.getWorld();
+            case "getActivePotionEffects": return new ArrayList<>(effects.values());
+            case "hasPotionEffect": return effects.containsKey((PotionEffectType) args[0]);
+            case "hasPermission":
+            case "isOp":
+                return admin;
+            case "addPassenger": {
+                Entity e = (Entity) args[0];
+                if (Proxy.getInvocationHandler(e) instanceof FakeEntity fe) fe.vehicle = player;
+                passengers.add(e);
+                return true;
+            }
+            case "removePassenger": {
+                Entity e = (Entity) args[0];
+                if (Proxy.getInvocationHandler(e) instanceof FakeEntity fe) fe.vehicle = null;
+                return passengers.remove(e);
+            }
+            case "getPassengers": return List.copyOf(passengers);
+            case "sendActionBar": actionBars++; return null;
+            case "teleport":
+            case "teleportAsync": {
+                location = ((Location) args[0]).clone();
+                return m.getReturnType() == boolean.class ? true : java.util.concurrent.CompletableFuture.completedFuture(true);
+            }
+            default: return FakeServer.objectMethod(proxy, m, args, "FakePlayer[" + name + "]");
+        }
+    }
+
+    void dropPassenger(Entity e) {
+        passengers.remove(e);
+    }
+}
@@ -0,0 +1,24 @@
+package net.example.openeffect;
+
+import io.papermc.paper.registry.RegistryAccess;
+import io.papermc.paper.registry.RegistryKey;
+import org.bukkit.Keyed;
+import org.bukkit.Registry;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * 疑似サーバー用の RegistryAccess（META-INF/services で読み込まれる）。
+ * Registry の静的初期化から呼ばれるので、FakeServer の Registry を返すだけにする。
+ */
+@SuppressWarnings({"deprecation", "removal"})
+public final class FakeRegistryAccess implements RegistryAccess {
+
+    public <T extends Keyed> Registry<T> getRegistry(Class<T> type) {
+        return FakeServer.start().registry(type);
+    }
+
+    public <T extends Keyed> Registry<T> getRegistry(RegistryKey<T> registryKey) {
+        Object type = RegistryKey.MOB_EFFECT.equals(registryKey) ? PotionEffectType.class : registryKey;
+        return FakeServer.start().registry(type);
+    }
+}
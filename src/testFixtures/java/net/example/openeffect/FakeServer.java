@@ -0,0 +1,506 @@
+package net.example.openeffect;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.Keyed;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.TextDisplay;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.potion.PotionEffectType;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ベンチマーク/負荷シミュレーター用の疑似サーバー（プロセス内、ネットワーク・ワールド無し）。
+ * - Server / World / Player / TextDisplay / スケジューラ / PluginManager は java.lang.reflect.Proxy で実装
+ *   （使われないメソッドは既定値を返すので、API の追加に追従しなくてよい）
+ * - tick() でスケジューラのタスクを実行し、ServerTickEndEvent を発火する
+ * - recordCalls を有効にすると、サーバー API への呼び出しを「型.メソッド」単位で数える
+ * Bukkit のサーバーは JVM に1つなので、start() は何度呼んでも同じインスタンスを返す。
+ */
+public final class FakeServer implements InvocationHandler {
+
+    private static FakeServer instance;
+
+    final Logger logger = Logger.getLogger("FakeServer");
+    final Server server;
+    private final World world;
+    private final BukkitScheduler scheduler;
+    private final PluginManager pluginManager;
+    private final ServicesManager servicesManager;
+
+    private final Map<UUID, FakePlayer> players = new LinkedHashMap<>();
+    private final Collection<Player> online = new ArrayList<>();
+    final Map<UUID, FakeEntity> entities = new HashMap<>();
+    private final Map<Object, Registry<?>> registries = new HashMap<>(); // Class または RegistryKey
+    private final List<Listener> listeners = new ArrayList<>();
+    private final Map<Class<?>, List<Object[]>> handlers = new HashMap<>(); // イベント型 → {EventHandler, Method, Listener}
+    private final Map<Class<?>, Object> services = new HashMap<>(); // ServicesManager（1型に1つ、優先度は見ない）
+
+    // スケジューラ
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private int nextTaskId = 1;
+    private long seq;
+    private int currentTick;
+
+    // 呼び出し回数
+    private volatile boolean recordCalls;
+    private final Map<String, LongAdder> calls = new java.util.concurrent.ConcurrentHashMap<>();
+
+    private int nextEntityId = 1;
+
+    private FakeServer() {
+        logger.setLevel(Level.WARNING);
+        this.server = proxy(Server.class, this);
+        this.world = proxy(World.class, new WorldHandler());
+        this.scheduler = proxy(BukkitScheduler.class, new SchedulerHandler());
+        this.pluginManager = proxy(PluginManager.class, new PluginManagerHandler());
+        this.servicesManager = proxy(ServicesManager.class, new ServicesHandler());
+    }
+
+    /** 疑似サーバーを Bukkit に登録する（2回目以降は既存を返す） */
+    public static synchronized FakeServer start() {
+        if (instance != null) return instance;
+        FakeServer fs = new FakeServer();
+        try {
+            // setServer はビルド情報のサービスを要求するので、フィールドへ直接入れる
+            Field f = Bukkit.class.getDeclaredField("server");
+            f.setAccessible(true);
+            f.set(null, fs.server);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot install fake server", e);
+        }
+        instance = fs; // Registry の初期化から start() が再入するので先に登録
+        PotionEffectType.SPEED.getKey(); // 効果の型を Registry に揃えておく
+        return fs;
+    }
+
+    // --- プラグイン ---
+
+    /** OpenEffect を一時ディレクトリで起動する。overrides は config.yml の上書き */
+    @SuppressWarnings("removal")
+    public OpenEffectPlugin enable(Map<String, Object> overrides) {
+        try {
+            File dir = Files.createTempDirectory("openeffect-fake").toFile();
+            dir.deleteOnExit();
+            YamlConfiguration cfg = new YamlConfiguration();
+            try (InputStream in = OpenEffectPlugin.class.getClassLoader().getResourceAsStream("config.yml")) {
+                if (in != null) cfg = YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+            for (Map.Entry<String, Object> e : overrides.entrySet()) cfg.set(e.getKey(), e.getValue());
+            cfg.save(new File(dir, "config.yml"));
+
+            PluginDescriptionFile desc = new PluginDescriptionFile("OpenEffect", "fake", OpenEffectPlugin.class.getName());
+            OpenEffectPlugin plugin = new OpenEffectPlugin(new JavaPluginLoader(server), desc, dir, new File(dir, "OpenEffect.jar"));
+            plugin.onEnable();
+            return plugin;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** プラグインを止めて、プレイヤー・エンティティ・タスク・リスナー・サービスを片付ける */
+    public void disable(OpenEffectPlugin plugin) {
+        plugin.onDisable();
+        services.clear();
+        players.clear();
+        online.clear();
+        entities.clear();
+        listeners.clear();
+        handlers.clear();
+        queue.clear();
+    }
+
+    // --- 世界 ---
+
+    public World world() {
+        return world;
+    }
+
+    public Location at(double x, double z) {
+        return new Location(world, x, 64, z, 0f, 0f);
+    }
+
+    /** プレイヤーを参加させる（PlayerJoinEvent を発火） */
+    public FakePlayer join(String name, Location at, boolean admin) {
+        FakePlayer fp = new FakePlayer(this, name, nextEntityId++, at, admin);
+        players.put(fp.id, fp);
+        online.add(fp.player);
+        callEvent(new org.bukkit.event.player.PlayerJoinEvent(fp.player, (net.kyori.adventure.text.Component) null));
+        return fp;
+    }
+
+    public void quit(FakePlayer fp) {
+        callEvent(new org.bukkit.event.player.PlayerQuitEvent(fp.player, (net.kyori.adventure.text.Component) null,
+                org.bukkit.event.player.PlayerQuitEvent.QuitReason.DISCONNECTED));
+        fp.online = false;
+        players.remove(fp.id);
+        online.remove(fp.player);
+    }
+
+    public Collection<FakePlayer> players() {
+        return players.values();
+    }
+
+    public int entityCount() {
+        return entities.size();
+    }
+
+    TextDisplay spawnTextDisplay(Location at) {
+        FakeEntity fe = new FakeEntity(this, nextEntityId++, at);
+        entities.put(fe.uuid, fe);
+        return fe.entity;
+    }
+
+    // --- tick ---
+
+    public int currentTick() {
+        return currentTick;
+    }
+
+    /** 1tick 進める：期限のタスクを実行し、最後に ServerTickEndEvent */
+    public void tick() {
+        currentTick++;
+        while (!queue.isEmpty() && queue.peek().due <= currentTick) {
+            Task t = queue.poll();
+            if (t.cancelled) continue;
+            try {
+                t.task.run();
+            } catch (Throwable e) {
+                logger.log(Level.SEVERE, "Task " + t.id + " failed", e);
+            }
+            if (t.period > 0 && !t.cancelled) {
+                t.due = currentTick + t.period;
+                t.seq = seq++;
+                queue.add(t);
+            }
+        }
+        callEvent(new ServerTickEndEvent(currentTick, 0, 0));
+    }
+
+    // --- イベント ---
+
+    /** 登録済みリスナーの @EventHandler を priority 順に呼ぶ */
+    public void callEvent(Event event) {
+        // 解決はイベント型ごとに1回（シミュレーターの計測に疑似サーバー側の反射コストを混ぜない）
+        List<Object[]> targets = handlers.computeIfAbsent(event.getClass(), this::resolveHandlers);
+        for (Object[] t : targets) {
+            EventHandler h = (EventHandler) t[0];
+            if (h.ignoreCancelled() && event instanceof Cancellable c && c.isCancelled()) continue;
+            try {
+                ((Method) t[1]).invoke(t[2], event);
+            } catch (InvocationTargetException e) {
+                logger.log(Level.SEVERE, "Event handler failed: " + ((Method) t[1]).getName(), e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private List<Object[]> resolveHandlers(Class<?> type) {
+        List<Object[]> targets = new ArrayList<>();
+        for (Listener l : listeners) {
+            for (Method m : l.getClass().getMethods()) {
+                EventHandler h = m.getAnnotation(EventHandler.class);
+                if (h == null || m.getParameterCount() != 1) continue;
+                if (!m.getParameterTypes()[0].isAssignableFrom(type)) continue;
+                targets.add(new Object[]{h, m, l});
+            }
+        }
+        targets.sort(Comparator.comparingInt(o -> ((EventHandler) o[0]).priority().getSlot()));
+        return targets;
+    }
+
+    // --- 呼び出し回数 ---
+
+    public void recordCalls(boolean on) {
+        this.recordCalls = on;
+    }
+
+    void record(String type, Method m) {
+        if (recordCalls) calls.computeIfAbsent(type + "." + m.getName(), k -> new LongAdder()).increment();
+    }
+
+    /** 「型.メソッド」→ 回数（呼び出し後にリセット） */
+    public Map<String, Long> drainCalls() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : calls.entrySet()) {
+            long v = e.getValue().sumThenReset();
+            if (v > 0) out.put(e.getKey(), v);
+        }
+        return out;
+    }
+
+    // --- Server ---
+
+    @Override
+    public Object invoke(Object proxy, Method m, Object[] args) {
+        record("Server", m);
+        switch (m.getName()) {
+            case "getLogger": return logger;
+            case "getName": return "FakeServer";
+            case "getVersion": return "fake";
+            case "getBukkitVersion": return "1.21.4-R0.1-SNAPSHOT";
+            case "getOnlinePlayers": return Collections.unmodifiableCollection(online);
+            case "getPlayer":
+            case "getPlayerExact":
+                if (args[0] instanceof UUID id) {
+                    FakePlayer fp = players.get(id);
+                    return fp == null ? null : fp.player;
+                }
+                for (FakePlayer fp : players.values()) if (fp.name.equalsIgnoreCase((String) args[0])) return fp.player;
+                return null;
+            case "getScheduler": return scheduler;
+            case "getPluginManager": return pluginManager;
+            case "getServicesManager": return servicesManager;
+            case "isPrimaryThread":
+            case "isOwnedByCurrentRegion":
+            case "isTickThread":
+                return true;
+            case "getCurrentTick": return currentTick;
+            case "getWorlds": return List.of(world);
+            case "getWorld": return world;
+            case "getTPS": return new double[]{20, 20, 20};
+            case "getRegistry": return registry(args[0]);
+            default: return objectMethod(proxy, m, args, "FakeServer");
+        }
+    }
+
+    /** 型ごとの Registry（効果の型だけは要求されたキーで作る） */
+    @SuppressWarnings("unchecked")
+    synchronized <T extends Keyed> Registry<T> registry(Object type) {
+        return (Registry<T>) registries.computeIfAbsent(type, t -> {
+            Function<NamespacedKey, Object> factory = t == PotionEffectType.class ? FakeEffectType::new : null;
+            return proxy(Registry.class, new RegistryHandler(factory));
+        });
+    }
+
+    // --- 補助 ---
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler h) {
+        return (T) Proxy.newProxyInstance(FakeServer.class.getClassLoader(), new Class<?>[]{type}, h);
+    }
+
+    /** equals/hashCode/toString は同一性で、それ以外は戻り値の型の既定値 */
+    static Object objectMethod(Object proxy, Method m, Object[] args, String name) {
+        switch (m.getName()) {
+            case "equals": return args != null && args.length == 1 && proxy == args[0];
+            case "hashCode": return System.identityHashCode(proxy);
+            case "toString": return name;
+            default: return defaultValue(m.getReturnType());
+        }
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0d;
+        if (type == float.class) return 0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return (char) 0;
+        if (type == List.class || type == Collection.class) return List.of();
+        if (type == Set.class) return Set.of();
+        if (type == Map.class) return Map.of();
+        if (type == Optional.class) return Optional.empty();
+        return null;
+    }
+
+    private final class WorldHandler implements InvocationHandler {
+        private final UUID uid = UUID.randomUUID();
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            record("World", m);
+            switch (m.getName()) {
+                case "getName": return "world";
+                case "getUID": return uid;
+                case "spawn": {
+                    Location at = (Location) args[0];
+                    TextDisplay td = spawnTextDisplay(at);
+                    for (Object a : args) {
+                        if (a instanceof Consumer<?> c) ((Consumer<Object>) c).accept(td);
+                    }
+                    return td;
+                }
+                default: return objectMethod(proxy, m, args, "FakeWorld");
+            }
+        }
+    }
+
+    private static final class Task implements Comparable<Task> {
+        final int id;
+        final Runnable task;
+        final long period;
+        long due;
+        long seq;
+        boolean cancelled;
+
+        Task(int id, Runnable task, long due, long period, long seq) {
+            this.id = id;
+            this.task = task;
+            this.due = due;
+            this.period = period;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            int c = Long.compare(due, o.due);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private final class SchedulerHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            record("BukkitScheduler", m);
+            switch (m.getName()) {
+                case "runTask": return schedule(args, 0, 0);
+                case "runTaskLater": return schedule(args, (Long) args[2], 0);
+                case "runTaskTimer": return schedule(args, (Long) args[2], (Long) args[3]);
+                case "cancelTasks": queue.clear(); return null;
+                case "cancelTask":
+                    for (Task t : queue) if (t.id == (Integer) args[0]) t.cancelled = true;
+                    return null;
+                default: return objectMethod(proxy, m, args, "FakeScheduler");
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object schedule(Object[] args, long delay, long period) {
+            Task[] self = new Task[1];
+            Runnable body;
+            if (args[1] instanceof Runnable r) {
+                body = r;
+            } else {
+                Consumer<BukkitTask> c = (Consumer<BukkitTask>) args[1];
+                BukkitTask handle = taskHandle(self);
+                body = () -> c.accept(handle);
+            }
+            Task t = new Task(nextTaskId++, body, currentTick + Math.max(1, delay), period, seq++);
+            self[0] = t;
+            queue.add(t);
+            return args[1] instanceof Runnable ? taskHandle(self) : null;
+        }
+
+        private BukkitTask taskHandle(Task[] self) {
+            return proxy(BukkitTask.class, (p, m, a) -> switch (m.getName()) {
+                case "getTaskId" -> self[0].id;
+                case "cancel" -> { self[0].cancelled = true; yield null; }
+                case "isCancelled" -> self[0].cancelled;
+                case "isSync" -> true;
+                default -> objectMethod(p, m, a, "FakeTask");
+            });
+        }
+    }
+
+    private final class PluginManagerHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            record("PluginManager", m);
+            switch (m.getName()) {
+                case "registerEvents":
+                    listeners.add((Listener) args[0]);
+                    handlers.clear();
+                    return null;
+                case "callEvent": callEvent((Event) args[0]); return null;
+                case "isPluginEnabled": return true;
+                default: return objectMethod(proxy, m, args, "FakePluginManager");
+            }
+        }
+    }
+
+    /** ServicesManager の疑似実装（register / load / unregister だけ） */
+    private final class ServicesHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            record("ServicesManager", m);
+            switch (m.getName()) {
+                case "register": services.put((Class<?>) args[0], args[1]); return null;
+                case "load": return services.get((Class<?>) args[0]);
+                case "isProvidedFor": return services.containsKey((Class<?>) args[0]);
+                case "unregisterAll": services.clear(); return null;
+                case "unregister":
+                    if (args.length == 2) services.remove((Class<?>) args[0], args[1]);
+                    else services.values().remove(args[0]);
+                    return null;
+                default: return objectMethod(proxy, m, args, "ServicesManager");
+            }
+        }
+    }
+
+    /** Registry の疑似実装。factory があれば未知のキーでも作って返す */
+    private static final class RegistryHandler implements InvocationHandler {
+        private final Map<NamespacedKey, Object> entries = new LinkedHashMap<>();
+        private final Function<NamespacedKey, Object> factory;
+
+        RegistryHandler(Function<NamespacedKey, Object> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            switch (m.getName()) {
+                case "get":
+                case "getOrThrow": {
+                    Object v = lookup(args[0]);
+                    if (v == null && m.getName().equals("getOrThrow")) throw new NoSuchElementException(String.valueOf(args[0]));
+                    return v;
+                }
+                case "iterator": return List.copyOf(entries.values()).iterator();
+                case "stream": return List.copyOf(entries.values()).stream();
+                case "size": return entries.size();
+                case "getKey": return args[0] instanceof Keyed k ? k.getKey() : null;
+                default: return objectMethod(proxy, m, args, "FakeRegistry");
+            }
+        }
+
+        private synchronized Object lookup(Object key) {
+            NamespacedKey nk = key instanceof NamespacedKey k ? k
+                    : key instanceof net.kyori.adventure.key.Key k ? NamespacedKey.fromString(k.asString())
+                    : null;
+            if (nk == null) return null;
+            Object v = entries.get(nk);
+            if (v == null && factory != null) {
+                v = factory.apply(nk);
+                entries.put(nk, v);
+            }
+            return v;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package net.example.openeffect;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 送ったパケットを記録するだけの PacketSink（VirtualDisplayBackend の検証用）。
+ * どのスレッドから呼ばれてもよいよう、記録は this で同期する。
+ */
+public final class RecordingPacketSink implements PacketSink {
+
+    public enum Kind { SPAWN, METADATA, MOVE, MOUNT, DESTROY }
+
+    /** 1パケット分（使わない項目は null / -1） */
+    public record Packet(Kind kind, UUID viewer, int entityId, Location at, Meta meta, int vehicleId) {}
+
+    private final List<Packet> packets = new ArrayList<>();
+
+    @Override
+    public synchronized void spawn(Player viewer, int entityId, UUID entityUuid, Location at) {
+        packets.add(new Packet(Kind.SPAWN, viewer.getUniqueId(), entityId, at.clone(), null, -1));
+    }
+
+    @Override
+    public synchronized void metadata(Player viewer, int entityId, Meta meta) {
+        packets.add(new Packet(Kind.METADATA, viewer.getUniqueId(), entityId, null, meta, -1));
+    }
+
+    @Override
+    public synchronized void move(Player viewer, int entityId, Location at) {
+        packets.add(new Packet(Kind.MOVE, viewer.getUniqueId(), entityId, at.clone(), null, -1));
+    }
+
+    @Override
+    public synchronized void mount(Player viewer, int vehicleId, int passengerId) {
+        packets.add(new Packet(Kind.MOUNT, viewer.getUniqueId(), passengerId, null, null, vehicleId));
+    }
+
+    @Override
+    public synchronized void destroy(Player viewer, int entityId) {
+        packets.add(new Packet(Kind.DESTROY, viewer.getUniqueId(), entityId, null, null, -1));
+    }
+
+    /** 記録した全パケット（送った順） */
+    public synchronized List<Packet> packets() {
+        return List.copyOf(packets);
+    }
+
+    /** viewer 宛てのパケット（送った順） */
+    public synchronized List<Packet> to(UUID viewer) {
+        List<Packet> out = new ArrayList<>();
+        for (Packet p : packets) if (p.viewer().equals(viewer)) out.add(p);
+        return out;
+    }
+
+    /** viewer 宛ての kind のパケット */
+    public synchronized List<Packet> to(UUID viewer, Kind kind) {
+        List<Packet> out = new ArrayList<>();
+        for (Packet p : packets) if (p.viewer().equals(viewer) && p.kind() == kind) out.add(p);
+        return out;
+    }
+
+    public synchronized void clear() {
+        packets.clear();
+    }
+}